@@ -30,11 +30,22 @@ public class Evaluation {
 
   public int evaluate(boolean currentTurn) {
     int color = currentTurn ? 1 : -1;
-    return (finalEvaluation() + materialScore()) * color;
+    return (cachedEvaluation() + materialScore()) * color;
   }
 
   public int evaluationDisplay() {
-    return (finalEvaluation() + materialScore());
+    return (cachedEvaluation() + materialScore());
+  }
+
+  // The positional part of the evaluation, looked up in the evaluation cache first
+  private int cachedEvaluation() {
+    long zobristKey = model.getZobristKey();
+    int eval = model.evaluationCache.get(zobristKey);
+    if (eval == EvaluationCache.MISS) {
+      eval = finalEvaluation();
+      model.evaluationCache.put(zobristKey, eval);
+    }
+    return eval;
   }
 
   public int materialScore() {
@@ -60,14 +71,12 @@ public class Evaluation {
   }
 
   public int finalEvaluation() {
+    bitboard.updateAttacks();
     adjustWeights();
 
-    int openingPawnEval = openingPawnEvaluation();
-    int endGamePawnEval = endGamePawnEvaluation();
-
-    if (!model.pawnTable.containsKey(model.pawnHashKey)) {
-      model.pawnTable.put(model.pawnHashKey, new PawnEntry(openingPawnEval, endGamePawnEval));
-    }
+    int pawnIndex = probePawnTable();
+    int openingPawnEval = model.pawnTable.getOpeningScore(pawnIndex);
+    int endGamePawnEval = model.pawnTable.getEndGameScore(pawnIndex);
 
     int eval =
         (int)
@@ -79,6 +88,47 @@ public class Evaluation {
     return eval;
   }
 
+  // Looks up the current pawn structure, evaluating and storing it on a miss
+  private int probePawnTable() {
+    int index = model.pawnTable.find(model.pawnHashKey);
+    if (index >= 0) {
+      return index;
+    }
+
+    // The passed pawns go in first so the pawn terms can read them from the slot
+    index = model.pawnTable.store(model.pawnHashKey, passedPawns(true), passedPawns(false));
+    model.pawnTable.setScores(index, openingPawnEvaluation(index), endGamePawnEvaluation(index));
+    return index;
+  }
+
+  // Pawns with no enemy pawn ahead of them on their own or adjacent files and no own pawn in front
+  private long passedPawns(boolean color) {
+    long ownPawns = color ? bitboard.pieceBitboards[5] : bitboard.pieceBitboards[11];
+    long enemyPawns = color ? bitboard.pieceBitboards[11] : bitboard.pieceBitboards[5];
+    long passedPawns = 0L;
+
+    for (long remaining = ownPawns; remaining != 0L; remaining &= remaining - 1) {
+      long pawn = remaining & -remaining;
+      int position = Long.numberOfTrailingZeros(pawn);
+      long file = Bitboard.fileMasks[position % 8];
+      long adjacentFiles = file;
+      if (position % 8 != 0) {
+        adjacentFiles |= Bitboard.fileMasks[(position % 8) - 1];
+      }
+      if (position % 8 != 7) {
+        adjacentFiles |= Bitboard.fileMasks[(position % 8) + 1];
+      }
+      long upperBits = ~1L << position;
+      long ahead = color ? upperBits : ~upperBits & ~pawn;
+      long frontSpan = adjacentFiles & ahead & ~Bitboard.rankMasks[position / 8];
+
+      if ((frontSpan & enemyPawns) == 0L && ((ownPawns ^ pawn) & file & ahead) == 0L) {
+        passedPawns |= pawn;
+      }
+    }
+    return passedPawns;
+  }
+
   public int openingEvaluation() {
     return openingKnightEvaluation()
         + openingBishopEvaluation()
@@ -119,25 +169,19 @@ public class Evaluation {
     return whiteEval - blackEval;
   }
 
-  public int openingPawnEvaluation() {
-    if (model.pawnTable.containsKey(model.pawnHashKey)) {
-      return model.pawnTable.get(model.pawnHashKey).openingEvaluation();
-    }
-
+  public int openingPawnEvaluation(int pawnIndex) {
     // White Pawn Evaluation
     int whiteEval = 0;
     long whitePawns = bitboard.pieceBitboards[5];
     long blackPawns = bitboard.pieceBitboards[11];
 
-    long whitePassedPawns = 0L;
+    long whitePassedPawns = model.pawnTable.getPassedPawns(pawnIndex, true);
     int whiteDoubledPawns = 0;
 
-    long[] individualWhitePawns = bitboard.getIndividualPieceBitboards(whitePawns);
-    for (long pawn : individualWhitePawns) {
+    for (long remaining = whitePawns; remaining != 0L; remaining &= remaining - 1) {
+      long pawn = remaining & -remaining;
       int position = Long.numberOfTrailingZeros(pawn);
-      long rank = Bitboard.rankMasks[position / 8];
       long file = Bitboard.fileMasks[position % 8];
-      long upperBits = ~1L << position;
       long leftFile = 0L;
       long rightFile = 0L;
       if (position % 8 != 0) {
@@ -146,11 +190,9 @@ public class Evaluation {
       if (position % 8 != 7) {
         rightFile = Bitboard.fileMasks[(position % 8) + 1];
       }
-      long frontSpan = (file | leftFile | rightFile) & upperBits & ~rank;
 
       // Passed Pawns
-      if ((frontSpan & blackPawns) == 0L && ((whitePawns ^ pawn) & file & upperBits) == 0L) {
-        whitePassedPawns |= pawn;
+      if ((whitePassedPawns & pawn) != 0L) {
         switch (position / 8) {
           case 1 -> whiteEval += 3;
           case 2 -> whiteEval += 7;
@@ -186,16 +228,13 @@ public class Evaluation {
 
     // Black Pawn Evaluation
     int blackEval = 0;
-    long blackPassedPawns = 0L;
+    long blackPassedPawns = model.pawnTable.getPassedPawns(pawnIndex, false);
     int blackDoubledPawns = 0;
 
-    long[] individualBlackPawns = bitboard.getIndividualPieceBitboards(blackPawns);
-    for (long pawn : individualBlackPawns) {
+    for (long remaining = blackPawns; remaining != 0L; remaining &= remaining - 1) {
+      long pawn = remaining & -remaining;
       int position = Long.numberOfTrailingZeros(pawn);
-      long rank = Bitboard.rankMasks[position / 8];
       long file = Bitboard.fileMasks[position % 8];
-      long upperBits = ~1L << position;
-      long lowerBits = ~upperBits & ~pawn;
       long leftFile = 0L;
       long rightFile = 0L;
 
@@ -205,11 +244,9 @@ public class Evaluation {
       if (position % 8 != 7) {
         rightFile = Bitboard.fileMasks[(position % 8) + 1];
       }
-      long frontSpan = (file | leftFile | rightFile) & lowerBits & ~rank;
 
       // Passed Pawns
-      if ((frontSpan & whitePawns) == 0L && ((blackPawns ^ pawn) & file & lowerBits) == 0L) {
-        blackPassedPawns |= pawn;
+      if ((blackPassedPawns & pawn) != 0L) {
         switch (position / 8) {
           case 6 -> blackEval += 3;
           case 5 -> blackEval += 7;
@@ -272,9 +309,8 @@ public class Evaluation {
     int whiteEval = 0;
     int blackEval = 0;
 
-    long[] whiteRooks = bitboard.getIndividualPieceBitboards(bitboard.pieceBitboards[2]);
-
-    for (long rook : whiteRooks) {
+    for (long remaining = bitboard.pieceBitboards[2]; remaining != 0L; remaining &= remaining - 1) {
+      long rook = remaining & -remaining;
       int position = Long.numberOfTrailingZeros(rook);
       long file = Bitboard.fileMasks[position % 8];
       long pawns = bitboard.pieceBitboards[5];
@@ -286,9 +322,8 @@ public class Evaluation {
 
     whiteEval += rookValues[Long.bitCount(bitboard.pieceBitboards[5])];
 
-    long[] blackRooks = bitboard.getIndividualPieceBitboards(bitboard.pieceBitboards[8]);
-
-    for (long rook : blackRooks) {
+    for (long remaining = bitboard.pieceBitboards[8]; remaining != 0L; remaining &= remaining - 1) {
+      long rook = remaining & -remaining;
       int position = Long.numberOfTrailingZeros(rook);
       long file = Bitboard.fileMasks[position % 8];
       long pawns = bitboard.pieceBitboards[11];
@@ -345,25 +380,19 @@ public class Evaluation {
     return whiteEval - blackEval;
   }
 
-  public int endGamePawnEvaluation() {
-    if (model.pawnTable.containsKey(model.pawnHashKey)) {
-      return model.pawnTable.get(model.pawnHashKey).endGameEvaluation();
-    }
-
+  public int endGamePawnEvaluation(int pawnIndex) {
     long whitePawns = bitboard.pieceBitboards[5];
     long blackPawns = bitboard.pieceBitboards[11];
 
     // White Pawn Evaluation
     int whiteEval = 0;
     int whiteDoubledPawns = 0;
-    long whitePassedPawns = 0L;
+    long whitePassedPawns = model.pawnTable.getPassedPawns(pawnIndex, true);
 
-    long[] individualWhitePawns = bitboard.getIndividualPieceBitboards(whitePawns);
-    for (long pawn : individualWhitePawns) {
+    for (long remaining = whitePawns; remaining != 0L; remaining &= remaining - 1) {
+      long pawn = remaining & -remaining;
       int position = Long.numberOfTrailingZeros(pawn);
-      long rank = Bitboard.rankMasks[position / 8];
       long file = Bitboard.fileMasks[position % 8];
-      long upperBits = ~1L << position;
       long leftFile = 0L;
       long rightFile = 0L;
       if (position % 8 != 0) {
@@ -372,11 +401,9 @@ public class Evaluation {
       if (position % 8 != 7) {
         rightFile = Bitboard.fileMasks[(position % 8) + 1];
       }
-      long frontSpan = (file | leftFile | rightFile) & upperBits & ~rank;
 
       // Passed Pawns
-      if ((frontSpan & blackPawns) == 0L && ((whitePawns ^ pawn) & file & upperBits) == 0L) {
-        whitePassedPawns |= pawn;
+      if ((whitePassedPawns & pawn) != 0L) {
         switch (position / 8) {
           case 1 -> whiteEval += 18;
           case 2 -> whiteEval += 22;
@@ -411,16 +438,13 @@ public class Evaluation {
 
     // Black Pawn Evaluation
     int blackEval = 0;
-    long blackPassedPawns = 0L;
+    long blackPassedPawns = model.pawnTable.getPassedPawns(pawnIndex, false);
     int blackDoubledPawns = 0;
 
-    long[] individualBlackPawns = bitboard.getIndividualPieceBitboards(blackPawns);
-    for (long pawn : individualBlackPawns) {
+    for (long remaining = blackPawns; remaining != 0L; remaining &= remaining - 1) {
+      long pawn = remaining & -remaining;
       int position = Long.numberOfTrailingZeros(pawn);
-      long rank = Bitboard.rankMasks[position / 8];
       long file = Bitboard.fileMasks[position % 8];
-      long upperBits = ~1L << position;
-      long lowerBits = ~upperBits & ~pawn;
       long leftFile = 0L;
       long rightFile = 0L;
 
@@ -430,11 +454,9 @@ public class Evaluation {
       if (position % 8 != 7) {
         rightFile = Bitboard.fileMasks[(position % 8) + 1];
       }
-      long frontSpan = (file | leftFile | rightFile) & lowerBits & ~rank;
 
       // Passed Pawns
-      if ((frontSpan & whitePawns) == 0L && ((blackPawns ^ pawn) & file & lowerBits) == 0L) {
-        blackPassedPawns |= pawn;
+      if ((blackPassedPawns & pawn) != 0L) {
         switch (position / 8) {
           case 6 -> blackEval += 18;
           case 5 -> blackEval += 22;
@@ -473,14 +495,13 @@ public class Evaluation {
     int whiteEval = knightValues[Long.bitCount(bitboard.pieceBitboards[5])];
     int blackEval = knightValues[Long.bitCount(bitboard.pieceBitboards[11])];
 
-    long[] whiteKnights = bitboard.getIndividualPieceBitboards(bitboard.pieceBitboards[4]);
-    long[] blackKnights = bitboard.getIndividualPieceBitboards(bitboard.pieceBitboards[10]);
 
     int whiteMobility = 0;
     int blackMobility = 0;
 
     // Increase bonus for more knight mobility in the end game
-    for (long knight : whiteKnights) {
+    for (long remaining = bitboard.pieceBitboards[4]; remaining != 0L; remaining &= remaining - 1) {
+      long knight = remaining & -remaining;
       whiteMobility += Long.bitCount(bitboard.knightMove(knight, true, false));
 
       if (whiteMobility <= 4) {
@@ -490,7 +511,10 @@ public class Evaluation {
       }
     }
 
-    for (long knight : blackKnights) {
+    for (long remaining = bitboard.pieceBitboards[10];
+        remaining != 0L;
+        remaining &= remaining - 1) {
+      long knight = remaining & -remaining;
       blackMobility += Long.bitCount(bitboard.knightMove(knight, false, false));
 
       if (blackMobility <= 4) {
@@ -532,9 +556,8 @@ public class Evaluation {
     int whiteEval = 0;
     int blackEval = 0;
 
-    long[] whiteRooks = bitboard.getIndividualPieceBitboards(bitboard.pieceBitboards[2]);
-
-    for (long rook : whiteRooks) {
+    for (long remaining = bitboard.pieceBitboards[2]; remaining != 0L; remaining &= remaining - 1) {
+      long rook = remaining & -remaining;
       int position = Long.numberOfTrailingZeros(rook);
       long file = Bitboard.fileMasks[position % 8];
       long rank = Bitboard.fileMasks[position / 8];
@@ -555,9 +578,8 @@ public class Evaluation {
 
     whiteEval += rookValues[Long.bitCount(bitboard.pieceBitboards[5])];
 
-    long[] blackRooks = bitboard.getIndividualPieceBitboards(bitboard.pieceBitboards[8]);
-
-    for (long rook : blackRooks) {
+    for (long remaining = bitboard.pieceBitboards[8]; remaining != 0L; remaining &= remaining - 1) {
+      long rook = remaining & -remaining;
       int position = Long.numberOfTrailingZeros(rook);
       long file = Bitboard.fileMasks[position % 8];
       long rank = Bitboard.fileMasks[position / 8];
@@ -586,14 +608,13 @@ public class Evaluation {
   }
 
   public int endGameKingEvaluation() {
-    if (model.kingPawnProximityTable.containsKey(model.kingPawnProximityHashKey)) {
-      return model.kingPawnProximityTable.get(model.kingPawnProximityHashKey);
+    int cachedEval = model.kingPawnProximityTable.get(model.kingPawnProximityHashKey);
+    if (cachedEval != KingPawnTable.MISS) {
+      return cachedEval;
     }
 
-    long[] pawns =
-        bitboard.getIndividualPieceBitboards(
-            bitboard.pieceBitboards[5] | bitboard.pieceBitboards[11]);
-    int numPawns = Long.bitCount(bitboard.pieceBitboards[5] | bitboard.pieceBitboards[11]);
+    long pawns = bitboard.pieceBitboards[5] | bitboard.pieceBitboards[11];
+    int numPawns = Long.bitCount(pawns);
 
     int whiteEval = 0;
     int blackEval = 0;
@@ -608,19 +629,18 @@ public class Evaluation {
     int whiteKingDistance = 0;
     int blackKingDistance = 0;
 
-    for (long pawn : pawns) {
-      int pawnPosition = bitboard.convertBitboardToInt(pawn);
+    for (long remaining = pawns; remaining != 0L; remaining &= remaining - 1) {
+      int pawnPosition = bitboard.convertBitboardToInt(remaining);
 
       whiteKingDistance += manhattanDistance(whiteKingPosition, pawnPosition);
       blackKingDistance += manhattanDistance(blackKingPosition, pawnPosition);
     }
 
-    double whiteAverageDistance = (double) whiteKingDistance / numPawns;
-    double blackAverageDistance = (double) blackKingDistance / numPawns;
-
-    // Bonus for king that is closer to pawns in end game
-    whiteEval += (int) (80 - 2 * whiteAverageDistance);
-    blackEval += (int) (80 - 2 * blackAverageDistance);
+    // Bonus for king that is closer to pawns in end game, 80 minus twice the average distance
+    if (numPawns != 0) {
+      whiteEval += (80 * numPawns - 2 * whiteKingDistance) / numPawns;
+      blackEval += (80 * numPawns - 2 * blackKingDistance) / numPawns;
+    }
 
     int numPieces = Long.bitCount(bitboard.occupied);
 
@@ -0,0 +1,59 @@
+package ChessEngine.AI;
+
+/**
+ * Fixed-size, direct-mapped cache of static evaluations, indexed by the low bits of the Zobrist
+ * key. Each slot is a single long: the upper 48 bits of the key, used to verify a hit, and the
+ * score in the low 16 bits. Scores that do not fit in 16 bits are not cached.
+ */
+public class EvaluationCache {
+  public static final int DEFAULT_ENTRIES = 1 << 16;
+  public static final int MISS = Integer.MIN_VALUE;
+  private static final long KEY_MASK = ~0xFFFFL;
+  private final long[] entries;
+  private final int mask;
+  private long probes;
+  private long hits;
+
+  public EvaluationCache() {
+    this(DEFAULT_ENTRIES);
+  }
+
+  public EvaluationCache(int entries) {
+    if (entries <= 0) {
+      throw new IllegalArgumentException("Evaluation cache size must be positive: " + entries);
+    }
+    int size = Integer.highestOneBit(entries);
+    this.entries = new long[size];
+    this.mask = size - 1;
+  }
+
+  // Returns the cached score, or MISS if the position is not cached
+  public int get(long zobristKey) {
+    probes++;
+    long entry = entries[(int) zobristKey & mask];
+    if (((entry ^ zobristKey) & KEY_MASK) == 0L) {
+      hits++;
+      return (short) entry;
+    }
+    return MISS;
+  }
+
+  public void put(long zobristKey, int score) {
+    if (score == (short) score) {
+      entries[(int) zobristKey & mask] = (zobristKey & KEY_MASK) | (score & 0xFFFFL);
+    }
+  }
+
+  public int getSize() {
+    return entries.length;
+  }
+
+  public double getHitRate() {
+    return probes == 0 ? 0 : (double) hits / probes;
+  }
+
+  public void resetStatistics() {
+    probes = 0;
+    hits = 0;
+  }
+}
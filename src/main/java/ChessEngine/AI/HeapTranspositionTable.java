@@ -0,0 +1,37 @@
+package ChessEngine.AI;
+
+import java.util.Arrays;
+
+/** Transposition table kept in a long array on the Java heap, limited to 8 GB. */
+public class HeapTranspositionTable extends TranspositionTable {
+  private final long[] table;
+
+  public HeapTranspositionTable() {
+    this(DEFAULT_SIZE_MB);
+  }
+
+  public HeapTranspositionTable(int sizeMb) {
+    // Eight longs per bucket have to fit in one array
+    this(bucketCount(sizeMb, 1L << 27));
+  }
+
+  private HeapTranspositionTable(long buckets) {
+    super(buckets);
+    this.table = new long[(int) buckets * BUCKET_SIZE * 2];
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(table, 0L);
+  }
+
+  @Override
+  protected long getSlot(long index) {
+    return table[(int) index];
+  }
+
+  @Override
+  protected void setSlot(long index, long value) {
+    table[(int) index] = value;
+  }
+}
@@ -0,0 +1,61 @@
+package ChessEngine.AI;
+
+/**
+ * Fixed-size, direct-mapped cache of the end game king evaluation, indexed by the low bits of the
+ * king and pawn hash key. The full key is kept next to each score to verify hits, and a new entry
+ * simply overwrites the slot it maps to. Both kings are always on the board, so the key of a real
+ * position is never zero and an empty slot never verifies.
+ */
+public class KingPawnTable {
+  public static final int DEFAULT_ENTRIES = 1 << 16;
+  public static final int MISS = Integer.MIN_VALUE;
+  private final long[] keys;
+  private final int[] scores;
+  private final int mask;
+  private long probes;
+  private long hits;
+
+  public KingPawnTable() {
+    this(DEFAULT_ENTRIES);
+  }
+
+  public KingPawnTable(int entries) {
+    if (entries <= 0) {
+      throw new IllegalArgumentException("King pawn table size must be positive: " + entries);
+    }
+    int size = Integer.highestOneBit(entries);
+    this.keys = new long[size];
+    this.scores = new int[size];
+    this.mask = size - 1;
+  }
+
+  // Returns the cached score, or MISS if the position is not cached
+  public int get(long kingPawnProximityHashKey) {
+    probes++;
+    int index = (int) kingPawnProximityHashKey & mask;
+    if (keys[index] == kingPawnProximityHashKey) {
+      hits++;
+      return scores[index];
+    }
+    return MISS;
+  }
+
+  public void put(long kingPawnProximityHashKey, int score) {
+    int index = (int) kingPawnProximityHashKey & mask;
+    keys[index] = kingPawnProximityHashKey;
+    scores[index] = score;
+  }
+
+  public int getSize() {
+    return keys.length;
+  }
+
+  public double getHitRate() {
+    return probes == 0 ? 0 : (double) hits / probes;
+  }
+
+  public void resetStatistics() {
+    probes = 0;
+    hits = 0;
+  }
+}
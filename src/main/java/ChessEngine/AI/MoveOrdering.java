@@ -0,0 +1,52 @@
+package ChessEngine.AI;
+
+import ChessEngine.model.Bitboard;
+import ChessEngine.model.Move;
+import ChessEngine.model.MoveList;
+
+public class MoveOrdering {
+  // Most valuable victim, least valuable attacker, indexed by piece type (K, Q, R, B, N, P)
+  private static final int[] victimValues = {0, 25, 19, 13, 7, 1};
+  private static final int[] attackerValues = {0, 1, 2, 3, 4, 5};
+
+  private MoveOrdering() {}
+
+  public static void sortMoves(MoveList moveList, Bitboard bitboard, int depth) {
+    sortMoves(moveList, bitboard, depth, Move.NONE);
+  }
+
+  // The transposition table move, if it is in the list, is searched first
+  public static void sortMoves(MoveList moveList, Bitboard bitboard, int depth, int ttMove) {
+    for (int i = 0; i < moveList.size; i++) {
+      int move = moveList.moves[i];
+      moveList.scores[i] =
+          move == ttMove ? Integer.MAX_VALUE : scoreMove(moveList.moves[i], bitboard, depth);
+    }
+    moveList.sort();
+  }
+
+  public static int scoreMove(int move, Bitboard bitboard, int depth) {
+    int value = getCaptureValue(move) + promotionBonus(move);
+
+    // Killer moves are tried after every capture and promotion but before the other quiet moves
+    if (value == 0) {
+      return bitboard.isKillerMove(move, depth) ? 1 : 0;
+    }
+    return 2 * value;
+  }
+
+  public static int getCaptureValue(int move) {
+    if (!Move.isCapture(move)) {
+      return 0;
+    }
+    return victimValues[Move.getCapturedPieceIndex(move) % 6]
+        + attackerValues[Move.getPieceIndex(move) % 6];
+  }
+
+  private static int promotionBonus(int move) {
+    if (Move.getPromotion(move) == 'Q' || Move.getPromotion(move) == 'q') {
+      return 8;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,122 @@
+package ChessEngine.AI;
+
+import ChessEngine.model.Bitboard;
+import ChessEngine.model.Move;
+import ChessEngine.model.MoveList;
+
+/**
+ * Hands out the moves of a node one at a time, generating each group only when the search asks
+ * for it: the transposition table move, then captures and promotions by MVV-LVA, then killer
+ * moves, then the remaining quiet moves by history score. Nodes that cut off early never generate
+ * quiet moves.
+ *
+ * <p>One picker is kept per ply and reset with {@link #init} on every visit.
+ */
+public class MovePicker {
+  private static final int TT_MOVE = 0;
+  private static final int GENERATE_CAPTURES = 1;
+  private static final int CAPTURES = 2;
+  private static final int KILLERS = 3;
+  private static final int GENERATE_QUIETS = 4;
+  private static final int QUIETS = 5;
+  private static final int DONE = 6;
+  private final Bitboard bitboard;
+  private final MoveList captures;
+  private final MoveList quiets;
+  private int stage;
+  private int index;
+  private int ttMove;
+  private int firstKiller;
+  private int secondKiller;
+  private int depth;
+
+  public MovePicker(Bitboard bitboard) {
+    this.bitboard = bitboard;
+    this.captures = new MoveList();
+    this.quiets = new MoveList();
+  }
+
+  public void init(int ttMove, int depth) {
+    this.stage = TT_MOVE;
+    this.index = 0;
+    this.ttMove = ttMove;
+    this.firstKiller = Move.NONE;
+    this.secondKiller = Move.NONE;
+    this.depth = depth;
+  }
+
+  // Returns Move.NONE once every legal move has been handed out
+  public int next() {
+    while (true) {
+      switch (stage) {
+        case TT_MOVE -> {
+          stage = GENERATE_CAPTURES;
+          if (bitboard.isLegalMove(ttMove)) {
+            return ttMove;
+          }
+          ttMove = Move.NONE;
+        }
+        case GENERATE_CAPTURES -> {
+          captures.clear();
+          bitboard.generateCaptures(captures);
+          for (int i = 0; i < captures.size; i++) {
+            captures.scores[i] = MoveOrdering.scoreMove(captures.moves[i], bitboard, -1);
+          }
+          captures.sort();
+          index = 0;
+          stage = CAPTURES;
+        }
+        case CAPTURES -> {
+          while (index < captures.size) {
+            int move = captures.moves[index++];
+            if (move != ttMove) {
+              return move;
+            }
+          }
+          index = 0;
+          stage = KILLERS;
+        }
+        case KILLERS -> {
+          while (index < 2) {
+            int killer = bitboard.killerMoves[depth][index++];
+            if (killer != ttMove
+                && killer != firstKiller
+                && !Move.isCapture(killer)
+                && !Move.isPromotion(killer)
+                && bitboard.isLegalMove(killer)) {
+              if (firstKiller == Move.NONE) {
+                firstKiller = killer;
+              } else {
+                secondKiller = killer;
+              }
+              return killer;
+            }
+          }
+          stage = GENERATE_QUIETS;
+        }
+        case GENERATE_QUIETS -> {
+          quiets.clear();
+          bitboard.generateQuiets(quiets);
+          for (int i = 0; i < quiets.size; i++) {
+            quiets.scores[i] = bitboard.getHistoryScore(quiets.moves[i]);
+          }
+          quiets.sort();
+          index = 0;
+          stage = QUIETS;
+        }
+        case QUIETS -> {
+          while (index < quiets.size) {
+            int move = quiets.moves[index++];
+            if (move != ttMove && move != firstKiller && move != secondKiller) {
+              return move;
+            }
+          }
+          stage = DONE;
+        }
+        default -> {
+          return Move.NONE;
+        }
+      }
+    }
+  }
+}
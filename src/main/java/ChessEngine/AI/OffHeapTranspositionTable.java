@@ -0,0 +1,77 @@
+package ChessEngine.AI;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Transposition table kept in native memory, so multi-gigabyte tables add nothing to the heap the
+ * garbage collector has to size and scan. The memory is split into direct buffers of at most 1 GB,
+ * since a buffer is indexed by int, and each buffer starts on a 64-byte boundary so that every
+ * bucket sits in a single cache line.
+ *
+ * <p>The memory is released when the table is garbage collected. Its size counts against the JVM
+ * direct memory limit, which can be raised with -XX:MaxDirectMemorySize.
+ */
+public class OffHeapTranspositionTable extends TranspositionTable {
+  private static final int CHUNK_SHIFT = 27;
+  private static final long CHUNK_SLOTS = 1L << CHUNK_SHIFT;
+  private static final int CACHE_LINE = 64;
+  // Slots zeroed by one bulk copy when the table is cleared
+  private static final int CLEAR_SLOTS = 1 << 16;
+  private final LongBuffer[] chunks;
+  private final LongBuffer first;
+
+  public OffHeapTranspositionTable() {
+    this(DEFAULT_SIZE_MB);
+  }
+
+  public OffHeapTranspositionTable(int sizeMb) {
+    this(bucketCount(sizeMb, Long.MAX_VALUE));
+  }
+
+  private OffHeapTranspositionTable(long buckets) {
+    super(buckets);
+    long slots = buckets * BUCKET_SIZE * 2;
+    this.chunks = new LongBuffer[(int) ((slots + CHUNK_SLOTS - 1) >>> CHUNK_SHIFT)];
+    for (int i = 0; i < chunks.length; i++) {
+      int bytes = (int) (Math.min(CHUNK_SLOTS, slots - i * CHUNK_SLOTS) * Long.BYTES);
+      chunks[i] =
+          ByteBuffer.allocateDirect(bytes + CACHE_LINE)
+              .alignedSlice(CACHE_LINE)
+              .limit(bytes)
+              .slice()
+              .order(ByteOrder.nativeOrder())
+              .asLongBuffer();
+    }
+    this.first = chunks[0];
+  }
+
+  @Override
+  public void clear() {
+    long[] zeros = new long[(int) Math.min(CLEAR_SLOTS, first.capacity())];
+    for (LongBuffer chunk : chunks) {
+      for (int offset = 0; offset < chunk.capacity(); offset += zeros.length) {
+        chunk.put(offset, zeros, 0, Math.min(zeros.length, chunk.capacity() - offset));
+      }
+    }
+  }
+
+  @Override
+  protected long getSlot(long index) {
+    // Tables up to 1 GB live in the first chunk, which saves a lookup in the chunk array
+    if (index < CHUNK_SLOTS) {
+      return first.get((int) index);
+    }
+    return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & (CHUNK_SLOTS - 1)));
+  }
+
+  @Override
+  protected void setSlot(long index, long value) {
+    if (index < CHUNK_SLOTS) {
+      first.put((int) index, value);
+      return;
+    }
+    chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & (CHUNK_SLOTS - 1)), value);
+  }
+}
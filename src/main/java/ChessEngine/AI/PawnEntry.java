@@ -1,3 +0,0 @@
-package ChessEngine.AI;
-
-public record PawnEntry(int openingEvaluation, int endGameEvaluation) {}
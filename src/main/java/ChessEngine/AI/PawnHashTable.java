@@ -0,0 +1,94 @@
+package ChessEngine.AI;
+
+/**
+ * Fixed-size, direct-mapped cache of pawn structure evaluations, indexed by the low bits of the
+ * pawn hash key. Each slot holds the opening and end game pawn scores together with the passed
+ * pawns of both sides, so evaluation terms can reuse them without walking the pawns again. A newer
+ * pawn structure simply overwrites the slot it maps to.
+ *
+ * <p>On a miss the passed pawns are stored first with {@link #store}, so the pawn scores can be
+ * computed from them and then added with {@link #setScores}.
+ *
+ * <p>Entries are kept in parallel primitive arrays and addressed by the slot index returned from
+ * {@link #find} or {@link #store}. An empty slot reads as the entry for a board without pawns,
+ * whose hash key, scores and passed pawns are all zero.
+ */
+public class PawnHashTable {
+  public static final int DEFAULT_ENTRIES = 1 << 16;
+  private final long[] keys;
+  private final int[] openingScores;
+  private final int[] endGameScores;
+  private final long[] whitePassedPawns;
+  private final long[] blackPassedPawns;
+  private final int mask;
+  private long probes;
+  private long hits;
+
+  public PawnHashTable() {
+    this(DEFAULT_ENTRIES);
+  }
+
+  public PawnHashTable(int entries) {
+    if (entries <= 0) {
+      throw new IllegalArgumentException("Pawn hash table size must be positive: " + entries);
+    }
+    int size = Integer.highestOneBit(entries);
+    this.keys = new long[size];
+    this.openingScores = new int[size];
+    this.endGameScores = new int[size];
+    this.whitePassedPawns = new long[size];
+    this.blackPassedPawns = new long[size];
+    this.mask = size - 1;
+  }
+
+  // Returns the slot holding the pawn structure, or -1 if it is not cached
+  public int find(long pawnHashKey) {
+    probes++;
+    int index = (int) pawnHashKey & mask;
+    if (keys[index] == pawnHashKey) {
+      hits++;
+      return index;
+    }
+    return -1;
+  }
+
+  public int store(long pawnHashKey, long whitePassed, long blackPassed) {
+    int index = (int) pawnHashKey & mask;
+    keys[index] = pawnHashKey;
+    openingScores[index] = 0;
+    endGameScores[index] = 0;
+    whitePassedPawns[index] = whitePassed;
+    blackPassedPawns[index] = blackPassed;
+    return index;
+  }
+
+  public void setScores(int index, int openingScore, int endGameScore) {
+    openingScores[index] = openingScore;
+    endGameScores[index] = endGameScore;
+  }
+
+  public int getOpeningScore(int index) {
+    return openingScores[index];
+  }
+
+  public int getEndGameScore(int index) {
+    return endGameScores[index];
+  }
+
+  public long getPassedPawns(int index, boolean color) {
+    return color ? whitePassedPawns[index] : blackPassedPawns[index];
+  }
+
+  public int getSize() {
+    return keys.length;
+  }
+
+  public double getHitRate() {
+    return probes == 0 ? 0 : (double) hits / probes;
+  }
+
+  public void resetStatistics() {
+    probes = 0;
+    hits = 0;
+  }
+}
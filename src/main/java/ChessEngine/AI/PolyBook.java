@@ -20,7 +20,8 @@ import java.util.Map;
 
 public class PolyBook {
   private static final int ENTRY_SIZE = 16;
-  public static Bitboard bitboard;
+  // Polyglot piece kind of each pieceBitboards index (black pawn = 0, ..., white king = 11)
+  private static final int[] polyPieceKinds = {11, 9, 7, 5, 3, 1, 10, 8, 6, 4, 2, 0};
   public static Map<Long, List<Long>> openingBookData;
   public static long[] polyKeys = {
     (0x9D39247E33776D41L), (0x2AF7398005AAA5C7L), (0x44DB015024623547L), (0x9C15F73E62A76AE2L),
@@ -222,56 +223,23 @@ public class PolyBook {
   };
   private static PolyBook instance;
 
-  private PolyBook(Bitboard bitboard) {
-    PolyBook.bitboard = bitboard;
+  private PolyBook() {
     openingBookData = readPolyBookFromFile("/Titans.bin");
   }
 
-  public static synchronized void getInstance(Bitboard bitboard) {
+  public static synchronized void getInstance() {
     if (instance == null) {
-      instance = new PolyBook(bitboard);
+      instance = new PolyBook();
     }
   }
 
-  public static long getPolyKey() {
+  public static long getPolyKey(Bitboard bitboard) {
     long key = 0L;
 
-    for (int i = 0; i < 64; i++) {
-      if ((bitboard.pieceBitboards[0] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 11 + i];
-      }
-      if ((bitboard.pieceBitboards[1] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 9 + i];
-      }
-      if ((bitboard.pieceBitboards[2] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 7 + i];
-      }
-      if ((bitboard.pieceBitboards[3] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 5 + i];
-      }
-      if ((bitboard.pieceBitboards[4] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 3 + i];
-      }
-      if ((bitboard.pieceBitboards[5] >> i & 1) == 1) {
-        key ^= polyKeys[64 + i];
-      }
-      if ((bitboard.pieceBitboards[6] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 10 + i];
-      }
-      if ((bitboard.pieceBitboards[7] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 8 + i];
-      }
-      if ((bitboard.pieceBitboards[8] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 6 + i];
-      }
-      if ((bitboard.pieceBitboards[9] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 4 + i];
-      }
-      if ((bitboard.pieceBitboards[10] >> i & 1) == 1) {
-        key ^= polyKeys[64 * 2 + i];
-      }
-      if ((bitboard.pieceBitboards[11] >> i & 1) == 1) {
-        key ^= polyKeys[i];
+    for (int piece = 0; piece < 12; piece++) {
+      int kind = polyPieceKinds[piece];
+      for (long pieces = bitboard.pieceBitboards[piece]; pieces != 0L; pieces &= pieces - 1) {
+        key ^= polyKeys[64 * kind + Long.numberOfTrailingZeros(pieces)];
       }
     }
 
@@ -304,7 +272,7 @@ public class PolyBook {
     List<Move> bookMoveList = new ArrayList<>();
     List<Long> entries = openingBookData.get(polyKey);
 
-    if (entries.isEmpty()) {
+    if (entries == null || entries.isEmpty()) {
       return null;
     }
 
@@ -2,63 +2,317 @@ package ChessEngine.AI;
 
 import ChessEngine.model.Model;
 import ChessEngine.model.Move;
+import ChessEngine.model.MoveList;
+import java.util.Arrays;
 
 public class Search {
   static int mateScore = 1000000;
+  // Scores beyond this are mates, stored in the table relative to the node they were found at
+  static int mateThreshold = mateScore - 1000;
+  // Nodes searched between two looks at the clock
+  private static final int TIME_CHECK_INTERVAL = 1024;
+  private static final int INFINITY = 999999999;
+  // Half width of the first root window around the previous iteration's score, in centipawns
+  private static final int ASPIRATION_WINDOW = 35;
+  // Shallower iterations are cheap and their scores too unsettled to center a window on
+  private static final int ASPIRATION_DEPTH = 4;
+  // Past this half width the root window is simply opened up completely
+  private static final int MAX_ASPIRATION_WINDOW = 1000;
+  // Null move pruning is tried from this depth on, with a larger reduction past the deep threshold
+  private static final int NULL_MOVE_DEPTH = 3;
+  private static final int NULL_MOVE_DEEP_DEPTH = 7;
+  // From this depth a null move cutoff is only trusted after a reduced search without null moves
+  private static final int NULL_MOVE_VERIFICATION_DEPTH = 8;
+  // Late move reductions start at this depth, after this many moves have been searched
+  private static final int REDUCTION_DEPTH = 3;
+  private static final int REDUCTION_MOVE_NUMBER = 3;
+  // History score worth one ply less, or one ply more when negative, of reduction
+  private static final int REDUCTION_HISTORY_DIVISOR = 4096;
+  // Reduction in plies by remaining depth and move number, growing with the log of both
+  private static final int[][] reductions = new int[64][64];
+  // Static evaluation pruning is only done this close to the leaves
+  private static final int REVERSE_FUTILITY_DEPTH = 3;
+  private static final int FUTILITY_DEPTH = 3;
+  private static final int RAZORING_DEPTH = 2;
   public final Evaluation evaluation;
+  // Late move reductions can be switched off to measure what they gain
+  public boolean lateMoveReductions;
+  // Margins of the static evaluation pruning, in centipawns per ply of remaining depth
+  public int reverseFutilityMargin;
+  public int futilityMargin;
+  public int razoringMargin;
   private final Model model;
   public int searchCount;
   public int leafNodeCount;
-  private Move bestMove;
+  private int bestMove;
+  private int searchRootPly;
+  private MovePicker[] movePickers;
+  // Quiet moves searched so far at each ply, which lose history when a later move cuts off
+  private MoveList[] searchedQuiets;
+  private TimeManager timeManager;
+  private boolean stopped;
+  private int completedDepth;
+  // Null moves are not tried before this ply while a null move cutoff is being verified
+  private int nullMoveMinPly;
 
   public Search(Model model) {
     this.model = model;
     this.evaluation = new Evaluation(model);
     searchCount = 0;
     leafNodeCount = 0;
-    bestMove = null;
+    bestMove = Move.NONE;
+    movePickers = new MovePicker[64];
+    searchedQuiets = new MoveList[64];
+    lateMoveReductions = true;
+    reverseFutilityMargin = 120;
+    futilityMargin = 150;
+    razoringMargin = 250;
+  }
+
+  static {
+    for (int depth = 1; depth < 64; depth++) {
+      for (int moveNumber = 1; moveNumber < 64; moveNumber++) {
+        reductions[depth][moveNumber] =
+            (int) (0.75 + Math.log(depth) * Math.log(moveNumber) / 2.25);
+      }
+    }
+  }
+
+  /**
+   * Searches one ply deeper at a time, up to maxDepth, until the time manager is satisfied.
+   * Every iteration starts from the table entries and killer moves left by the previous one, so
+   * the best move so far is searched first. An iteration cut short by the hard time limit is
+   * thrown away, and the best move of the last completed iteration is returned.
+   *
+   * <p>From ASPIRATION_DEPTH on, the root is searched with a narrow window around the previous
+   * score. A result on or outside the window only bounds the true score, so the side that failed
+   * is widened, doubling the margin each time, and the iteration is searched again.
+   */
+  public int iterativeDeepening(int maxDepth, TimeManager timeManager) {
+    this.timeManager = timeManager;
+    this.stopped = false;
+    this.completedDepth = 0;
+    int completedBestMove = Move.NONE;
+    timeManager.start();
+    model.transpositionTable.newSearch();
+    model.getBitboard().ageHistory();
+
+    int score = 0;
+    for (int depth = 1; depth <= maxDepth; depth++) {
+      score = aspirationSearch(depth, score);
+      if (stopped) {
+        break;
+      }
+      completedDepth = depth;
+      completedBestMove = bestMove;
+      if (Math.abs(score) >= mateThreshold || timeManager.shouldStop(completedBestMove)) {
+        break;
+      }
+    }
+
+    this.timeManager = null;
+    this.stopped = false;
+    bestMove = completedBestMove;
+    return completedBestMove;
+  }
+
+  private int aspirationSearch(int depth, int previousScore) {
+    if (depth < ASPIRATION_DEPTH || Math.abs(previousScore) >= mateThreshold) {
+      return search(depth, 0, -INFINITY, INFINITY);
+    }
+
+    int window = ASPIRATION_WINDOW;
+    int alpha = previousScore - window;
+    int beta = previousScore + window;
+    while (true) {
+      int score = search(depth, 0, alpha, beta);
+      if (stopped || (score > alpha && score < beta)) {
+        return score;
+      }
+      window *= 2;
+      if (window > MAX_ASPIRATION_WINDOW) {
+        return search(depth, 0, -INFINITY, INFINITY);
+      }
+      if (score <= alpha) {
+        alpha = Math.max(score - window, -INFINITY);
+      } else {
+        beta = Math.min(score + window, INFINITY);
+      }
+    }
+  }
+
+  // Aborts the search once the hard limit is reached, but never before the first iteration is done
+  private boolean isStopped() {
+    if (!stopped
+        && timeManager != null
+        && completedDepth > 0
+        && searchCount % TIME_CHECK_INTERVAL == 0
+        && timeManager.isHardLimitReached()) {
+      stopped = true;
+    }
+    return stopped;
   }
 
   public int search(int depth, int ply, int alpha, int beta) {
     int alphaOriginal = alpha;
 
+    if (ply == 0) {
+      searchRootPly = model.getPly();
+    } else if (isStopped()) {
+      return 0;
+    }
+
     long zobristKey = model.getZobristKey();
 
-    TranspositionEntry entry = model.transpositionTable.getPosition(zobristKey);
+    long entry = model.transpositionTable.getPosition(zobristKey);
+    int ttMove = TranspositionTable.getBestMove(entry);
 
-    if (entry != null && entry.ply() >= ply) {
-      if (entry.flag() == TranspositionEntry.Flag.EXACT) {
-        bestMove = entry.bestMove();
-        return entry.score();
-      } else if (entry.flag() == TranspositionEntry.Flag.LOWER_BOUND) {
-        alpha = Math.max(alpha, entry.score());
-      } else if (entry.flag() == TranspositionEntry.Flag.UPPER_BOUND) {
-        beta = Math.min(beta, entry.score());
+    // The root is always searched, so it has a best move even when its window is narrow
+    if (ply > 0
+        && entry != TranspositionTable.NONE
+        && TranspositionTable.getDepth(entry) >= depth) {
+      int flag = TranspositionTable.getFlag(entry);
+      int score = scoreFromTable(TranspositionTable.getScore(entry), ply);
+      if (flag == TranspositionTable.EXACT) {
+        model.transpositionTable.recordCutoff();
+        bestMove = ttMove;
+        return score;
+      } else if (flag == TranspositionTable.LOWER_BOUND) {
+        alpha = Math.max(alpha, score);
+      } else if (flag == TranspositionTable.UPPER_BOUND) {
+        beta = Math.min(beta, score);
       }
       if (alpha >= beta) {
-        return entry.score();
+        model.transpositionTable.recordCutoff();
+        return score;
       }
     }
 
-    if (model.isCheckmate()) {
-      return -mateScore + ply;
-    } else if (model.isDraw()) {
+    if (model.isDraw(searchRootPly)) {
       return 0;
     }
 
     if (depth == 0) {
-      return quiescenceSearch(alpha, beta);
+      if (model.isCheck() && model.getLegalMoves().isEmpty()) {
+        return -mateScore + ply;
+      }
+      return quiescenceSearch(ply, alpha, beta);
+    }
+
+    boolean pvNode = beta - alpha > 1;
+    boolean inCheck = model.isCheck();
+    // Evaluated once and shared by every pruning decision at this node
+    int staticEval = inCheck ? -INFINITY : evaluation.evaluate(model.getCurrentTurn());
+    // Pruning on the static evaluation is unsound in check and when mate scores are in play
+    boolean canPrune = ply > 0 && !pvNode && !inCheck && Math.abs(beta) < mateThreshold;
+
+    // Reverse futility: a position far enough above beta is not expected to drop below it
+    // within the few plies left
+    if (canPrune
+        && depth <= REVERSE_FUTILITY_DEPTH
+        && staticEval - reverseFutilityMargin * depth >= beta) {
+      return staticEval;
+    }
+
+    // Razoring: a position far enough below alpha near the leaves is left to quiescence search,
+    // and only searched further if a capture sequence brings it back
+    if (canPrune && depth <= RAZORING_DEPTH && staticEval + razoringMargin * depth <= alpha) {
+      int score = quiescenceSearch(ply, alpha, alpha + 1);
+      if (stopped) {
+        return 0;
+      }
+      if (score <= alpha) {
+        return score;
+      }
+    }
+
+    if (canTryNullMove(depth, ply, pvNode, inCheck, staticEval, beta)) {
+      // Giving the opponent a free move and still failing high means the position is so good that
+      // a real move would fail high too, so the node is cut off after a reduced search. Not done
+      // in check, twice in a row, or with only pawns left, where passing can be the best move
+      int reduction = depth >= NULL_MOVE_DEEP_DEPTH ? 3 : 2;
+      model.makeNullMove();
+      int score = -search(Math.max(depth - 1 - reduction, 0), ply + 1, -beta, -beta + 1);
+      model.undoNullMove();
+
+      if (stopped) {
+        return 0;
+      }
+
+      if (score >= beta) {
+        // A mate found after passing is not proven
+        if (score >= mateThreshold) {
+          score = beta;
+        }
+        if (depth < NULL_MOVE_VERIFICATION_DEPTH) {
+          return score;
+        }
+        // Deep cutoffs are verified in case the position is a zugzwang the null move hid
+        int previousMinPly = nullMoveMinPly;
+        nullMoveMinPly = ply + 3 * (depth - reduction) / 4;
+        int verification = search(depth - reduction, ply, beta - 1, beta);
+        nullMoveMinPly = previousMinPly;
+        if (stopped) {
+          return 0;
+        }
+        if (verification >= beta) {
+          return score;
+        }
+      }
     }
 
-    int evaluation = -999999999;
-    Move bestMoveAtCurrentDepth = null;
+    MovePicker movePicker = getMovePicker(ply);
+    movePicker.init(ttMove, depth);
+    // Futility: quiet moves cannot lift a position this far below alpha back above it
+    boolean futile =
+        canPrune
+            && depth <= FUTILITY_DEPTH
+            && Math.abs(alpha) < mateThreshold
+            && staticEval + futilityMargin * depth <= alpha;
+    MoveList quiets = getSearchedQuiets(ply);
+    int evaluation = -INFINITY;
+    int bestMoveAtCurrentDepth = Move.NONE;
+    int moveNumber = 0;
+    int move;
 
-    for (Move move : model.getBitboard().getLegalMoves()) {
+    // Principal variation search: the first move, the most likely best one, gets the full window.
+    // The others are only checked with a null window to prove they are no better, and searched
+    // again with the full window when that proof fails. Late quiet moves are checked at a reduced
+    // depth first and only searched to full depth if the reduced search beats alpha
+    while ((move = movePicker.next()) != Move.NONE) {
+      model.movePiece(move, false);
+      // A skipped move is taken to score what the futility margin allowed it, which keeps the
+      // upper bound stored for this node honest
+      if (futile
+          && moveNumber > 0
+          && !Move.isCapture(move)
+          && !Move.isPromotion(move)
+          && !model.isCheck()) {
+        model.undoMove();
+        evaluation = Math.max(evaluation, staticEval + futilityMargin * depth);
+        continue;
+      }
+      moveNumber++;
       searchCount++;
-      model.movePiece(move, false, depth);
-      int score = -search(depth - 1, ply + 1, -beta, -alpha);
+      int score;
+      if (moveNumber == 1) {
+        score = -search(depth - 1, ply + 1, -beta, -alpha);
+      } else {
+        int reduction = lateMoveReduction(move, depth, moveNumber, pvNode, inCheck);
+        score = -search(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha);
+        if (score > alpha && reduction > 0 && !stopped) {
+          score = -search(depth - 1, ply + 1, -alpha - 1, -alpha);
+        }
+        if (score > alpha && score < beta && !stopped) {
+          score = -search(depth - 1, ply + 1, -beta, -alpha);
+        }
+      }
       model.undoMove();
 
+      if (stopped) {
+        return 0;
+      }
+
       if (score > evaluation) {
         evaluation = score;
         bestMoveAtCurrentDepth = move; // Update the best move at this depth
@@ -66,35 +320,130 @@ public class Search {
 
       alpha = Math.max(alpha, evaluation);
 
+      boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
       if (alpha >= beta) {
         model.getBitboard().recordKillerMove(move, depth);
+        if (quiet) {
+          model.getBitboard().recordHistory(move, depth);
+          for (int i = 0; i < quiets.size(); i++) {
+            model.getBitboard().penalizeHistory(quiets.get(i), depth);
+          }
+        }
         break;
       }
+      if (quiet) {
+        quiets.add(move);
+      }
+    }
+
+    if (bestMoveAtCurrentDepth == Move.NONE) {
+      return model.isCheck() ? -mateScore + ply : 0;
     }
 
-    TranspositionEntry.Flag flag;
+    int flag;
 
     if (evaluation <= alphaOriginal) {
-      flag = TranspositionEntry.Flag.UPPER_BOUND;
+      flag = TranspositionTable.UPPER_BOUND;
     } else if (evaluation >= beta) {
-      flag = TranspositionEntry.Flag.LOWER_BOUND;
+      flag = TranspositionTable.LOWER_BOUND;
     } else {
-      flag = TranspositionEntry.Flag.EXACT;
+      flag = TranspositionTable.EXACT;
     }
 
     if (evaluation != 0) {
       model.transpositionTable.storePosition(
-          zobristKey, ply, evaluation, flag, bestMoveAtCurrentDepth);
+          zobristKey, depth, scoreToTable(evaluation, ply), flag, bestMoveAtCurrentDepth);
     }
 
     bestMove = bestMoveAtCurrentDepth;
     return evaluation;
   }
 
-  private int quiescenceSearch(int alpha, int beta) {
+  // Called with the move made, so a move that gives check can be recognised
+  private int lateMoveReduction(
+      int move, int depth, int moveNumber, boolean pvNode, boolean inCheck) {
+    if (!lateMoveReductions
+        || depth < REDUCTION_DEPTH
+        || moveNumber <= REDUCTION_MOVE_NUMBER
+        || inCheck
+        || Move.isCapture(move)
+        || Move.isPromotion(move)) {
+      return 0;
+    }
+    int reduction = reductions[Math.min(depth, 63)][Math.min(moveNumber, 63)];
+    if (pvNode) {
+      reduction--;
+    }
+    if (model.isCheck()) {
+      reduction--;
+    }
+    reduction -= model.getBitboard().getHistoryScore(move) / REDUCTION_HISTORY_DIVISOR;
+    // At least one ply is always left to the reduced search
+    return Math.max(0, Math.min(reduction, depth - 2));
+  }
+
+  private boolean canTryNullMove(
+      int depth, int ply, boolean pvNode, boolean inCheck, int staticEval, int beta) {
+    return depth >= NULL_MOVE_DEPTH
+        && ply >= nullMoveMinPly
+        && ply > 0
+        && !pvNode
+        && Math.abs(beta) < mateThreshold
+        && !model.isLastMoveNull()
+        && !inCheck
+        && model.hasNonPawnMaterial()
+        && staticEval >= beta;
+  }
+
+  private MovePicker getMovePicker(int ply) {
+    if (ply >= movePickers.length) {
+      movePickers = Arrays.copyOf(movePickers, Math.max(ply + 1, movePickers.length * 2));
+    }
+    if (movePickers[ply] == null) {
+      movePickers[ply] = new MovePicker(model.getBitboard());
+    }
+    return movePickers[ply];
+  }
+
+  private MoveList getSearchedQuiets(int ply) {
+    if (ply >= searchedQuiets.length) {
+      searchedQuiets = Arrays.copyOf(searchedQuiets, Math.max(ply + 1, searchedQuiets.length * 2));
+    }
+    if (searchedQuiets[ply] == null) {
+      searchedQuiets[ply] = new MoveList();
+    }
+    MoveList quiets = searchedQuiets[ply];
+    quiets.clear();
+    return quiets;
+  }
+
+  private int quiescenceSearch(int ply, int alpha, int beta) {
+    int alphaOriginal = alpha;
+    if (isStopped()) {
+      return 0;
+    }
+    long zobristKey = model.getZobristKey();
+
+    // Every table entry is at least as deep as a quiescence search
+    long entry = model.transpositionTable.getPosition(zobristKey);
+    int ttMove = TranspositionTable.getBestMove(entry);
+
+    if (entry != TranspositionTable.NONE) {
+      int flag = TranspositionTable.getFlag(entry);
+      int score = scoreFromTable(TranspositionTable.getScore(entry), ply);
+      if (flag == TranspositionTable.EXACT
+          || (flag == TranspositionTable.LOWER_BOUND && score >= beta)
+          || (flag == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+        model.transpositionTable.recordCutoff();
+        return score;
+      }
+    }
+
     int eval = evaluation.evaluate(model.getCurrentTurn());
 
     if (eval >= beta) {
+      model.transpositionTable.storePosition(
+          zobristKey, 0, scoreToTable(beta, ply), TranspositionTable.LOWER_BOUND, Move.NONE);
       return beta;
     }
 
@@ -102,58 +451,73 @@ public class Search {
       alpha = eval;
     }
 
-    if (model.isCheck()) {
-      for (Move move : model.getBitboard().getLegalMoves()) {
-        searchCount++;
-        model.movePiece(move, false, -1);
-        int score = -quiescenceSearch(-beta, -alpha);
-        model.undoMove();
+    MoveList moves = model.isCheck() ? model.generateEvasions() : model.generateCaptures();
+    MoveOrdering.sortMoves(moves, model.getBitboard(), -1, ttMove);
+    int bestMoveAtCurrentNode = Move.NONE;
 
-        if (score >= beta) {
-          return beta;
-        }
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      searchCount++;
+      model.movePiece(move, false);
+      int score = -quiescenceSearch(ply + 1, -beta, -alpha);
+      model.undoMove();
 
-        if (score > alpha) {
-          alpha = score;
-        }
+      if (stopped) {
+        return 0;
       }
-    } else {
-      for (Move move : model.getBitboard().getLegalMoves()) {
-        if (move.getCapturedPiece() == ' ') {
-          return alpha;
-        }
-        searchCount++;
-        model.movePiece(move, false, -1);
-        int score = -quiescenceSearch(-beta, -alpha);
-        model.undoMove();
 
-        if (score >= beta) {
-          return beta;
-        }
+      if (score >= beta) {
+        model.transpositionTable.storePosition(
+            zobristKey, 0, scoreToTable(beta, ply), TranspositionTable.LOWER_BOUND, move);
+        return beta;
+      }
 
-        if (score > alpha) {
-          alpha = score;
-        }
+      if (score > alpha) {
+        alpha = score;
+        bestMoveAtCurrentNode = move;
       }
     }
 
+    int flag = alpha > alphaOriginal ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+    model.transpositionTable.storePosition(
+        zobristKey, 0, scoreToTable(alpha, ply), flag, bestMoveAtCurrentNode);
     return alpha;
   }
 
+  private static int scoreToTable(int score, int ply) {
+    if (score >= mateThreshold) {
+      return score + ply;
+    } else if (score <= -mateThreshold) {
+      return score - ply;
+    }
+    return score;
+  }
+
+  private static int scoreFromTable(int score, int ply) {
+    if (score >= mateThreshold) {
+      return score - ply;
+    } else if (score <= -mateThreshold) {
+      return score + ply;
+    }
+    return score;
+  }
+
   public void fullSearch(int depth) {
     if (depth == 0) {
       leafNodeCount++;
       searchCount++;
       return; // Return value doesn't matter in this context
     }
-    for (Move possibleMove : model.getBitboard().getLegalMoves()) {
-      model.movePiece(possibleMove, false, -1);
+    MoveList moves = model.getLegalMoves();
+    for (int i = 0; i < moves.size(); i++) {
+      int possibleMove = moves.get(i);
+      model.movePiece(possibleMove, false);
       fullSearch(depth - 1);
       model.undoMove();
 
       if (depth == -1) { // Set to desired depth to get move breakdowns
         System.out.println(
-            model.getMoveNotation(possibleMove.getOrigin(), possibleMove.getDestination())
+            model.getMoveNotation(Move.getOrigin(possibleMove), Move.getDestination(possibleMove))
                 + ": "
                 + leafNodeCount);
         leafNodeCount = 0;
@@ -161,11 +525,19 @@ public class Search {
     }
   }
 
-  public Move getBestMove() {
+  public TranspositionTable getTranspositionTable() {
+    return model.transpositionTable;
+  }
+
+  public int getBestMove() {
     return bestMove;
   }
 
+  public int getCompletedDepth() {
+    return completedDepth;
+  }
+
   public void resetBestMove() {
-    bestMove = null;
+    bestMove = Move.NONE;
   }
 }
@@ -0,0 +1,85 @@
+package ChessEngine.AI;
+
+import ChessEngine.model.Move;
+
+/**
+ * Decides how long the engine thinks about a move, given the time left on its clock and the
+ * increment it gets back after moving.
+ *
+ * <p>Two limits are computed when the search starts. The soft limit is the time the search aims
+ * to use: an even share of the remaining clock plus most of the increment. Iterative deepening
+ * checks it between iterations, and stops earlier when the best move has not changed for a few
+ * iterations or later, up to twice the soft limit, while it keeps changing. The hard limit is
+ * checked inside the search and aborts the current iteration; it never exceeds a fifth of the
+ * remaining clock, so a single move cannot lose the game on time.
+ */
+public class TimeManager {
+  // Number of moves the remaining clock is assumed to be shared between
+  private static final int MOVES_TO_GO = 30;
+  // Time kept back for making the move and redrawing the board
+  private static final long OVERHEAD_MILLIS = 50;
+  private static final int HARD_LIMIT_FACTOR = 4;
+  // Iterations without a new best move after which the search settles for less time
+  private static final int STABLE_ITERATIONS = 3;
+  private final long softLimitNanos;
+  private final long hardLimitNanos;
+  private long startTime;
+  private int lastBestMove;
+  private int stability;
+
+  public TimeManager(long remainingMillis, long incrementMillis) {
+    long available = Math.max(remainingMillis - OVERHEAD_MILLIS, 1);
+    long soft = available / MOVES_TO_GO + incrementMillis * 3 / 4;
+    long hard = Math.min(soft * HARD_LIMIT_FACTOR, available / 5 + incrementMillis);
+    soft = Math.min(soft, hard);
+    this.softLimitNanos = soft * 1_000_000;
+    this.hardLimitNanos = hard * 1_000_000;
+    this.startTime = System.nanoTime();
+    this.lastBestMove = Move.NONE;
+    this.stability = 0;
+  }
+
+  public void start() {
+    startTime = System.nanoTime();
+    lastBestMove = Move.NONE;
+    stability = 0;
+  }
+
+  public long getElapsedMillis() {
+    return (System.nanoTime() - startTime) / 1_000_000;
+  }
+
+  public long getSoftLimitMillis() {
+    return softLimitNanos / 1_000_000;
+  }
+
+  public long getHardLimitMillis() {
+    return hardLimitNanos / 1_000_000;
+  }
+
+  // Checked by the search while an iteration is running
+  public boolean isHardLimitReached() {
+    return System.nanoTime() - startTime >= hardLimitNanos;
+  }
+
+  // Called after every completed iteration with its best move. The next iteration usually takes
+  // longer than all earlier ones together, so it is only started within half of the time target
+  public boolean shouldStop(int bestMove) {
+    if (bestMove == lastBestMove) {
+      stability++;
+    } else {
+      stability = 0;
+      lastBestMove = bestMove;
+    }
+
+    long limit;
+    if (stability >= STABLE_ITERATIONS) {
+      limit = softLimitNanos / 2;
+    } else if (stability == 0) {
+      limit = softLimitNanos * 2;
+    } else {
+      limit = softLimitNanos;
+    }
+    return System.nanoTime() - startTime >= Math.min(limit, hardLimitNanos) / 2;
+  }
+}
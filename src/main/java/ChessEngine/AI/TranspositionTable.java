@@ -1,29 +1,278 @@
 package ChessEngine.AI;
 
 import ChessEngine.model.Move;
-import java.util.HashMap;
-import java.util.Map;
 
-public class TranspositionTable {
-  private final Map<Long, TranspositionEntry> table;
+/**
+ * Fixed-size transposition table made of 64-bit slots. Every entry takes two slots: the Zobrist key
+ * XORed with the data word, and the data word holding the rest of the entry. Entries are grouped in
+ * buckets of four, 64 bytes, so a probe reads a single cache line when the storage is aligned. The
+ * number of buckets is the largest power of two that fits in the requested number of megabytes, so
+ * the table never grows and probing or storing never allocates.
+ *
+ * <p>Subclasses only provide the storage: {@link HeapTranspositionTable} keeps the slots in a long
+ * array, {@link OffHeapTranspositionTable} in native memory outside the Java heap.
+ *
+ * <p>The table is kept for the whole game. {@link #newSearch} is called once per move, before
+ * iterative deepening starts, and bumps a generation counter that is stored with each entry. When
+ * a bucket is full, the entry that is replaced is the one with the lowest depth once older
+ * generations are penalised, so deep results from earlier moves survive until newer work needs
+ * the space.
+ *
+ * <p>Several search threads can share one table without locking. Slots are read and written with
+ * plain accesses, so another thread may overwrite an entry while a probe is reading it. Since the
+ * key is stored XORed with its data, a torn or half-updated entry no longer verifies against the
+ * probed key and is treated as a miss. {@link #newSearch} should only be called before the workers
+ * of a search are started.
+ *
+ * <p>Layout of the data word, from the least significant bit:
+ *
+ * <pre>
+ *   bits  0-26  best move (encoded as in Move)
+ *   bits 27-28  bound flag (EXACT, UPPER_BOUND or LOWER_BOUND, never 0)
+ *   bits 29-35  remaining depth
+ *   bits 36-42  generation
+ *   bits 43-63  score (signed)
+ * </pre>
+ *
+ * Entries are read with {@link #getPosition}, which returns the data word or {@link #NONE}, and
+ * decoded with the static getters.
+ *
+ * <p>Probes and stores are counted so the table can be sized from data. The counters are plain
+ * fields, so they are approximate when several threads share the table. They are exposed through
+ * {@link TranspositionTableMBean} and cleared with {@link #resetStatistics}.
+ */
+public abstract class TranspositionTable implements TranspositionTableMBean {
+  public static final long NONE = 0L;
+  public static final int EXACT = 1;
+  public static final int UPPER_BOUND = 2;
+  public static final int LOWER_BOUND = 3;
+  public static final int DEFAULT_SIZE_MB = 16;
+  static final int BUCKET_SIZE = 4;
+  static final int BYTES_PER_BUCKET = BUCKET_SIZE * 2 * Long.BYTES;
+  private static final int FLAG_SHIFT = 27;
+  private static final int DEPTH_SHIFT = 29;
+  private static final int AGE_SHIFT = 36;
+  private static final int SCORE_SHIFT = 43;
+  private static final int AGE_MASK = 0x7F;
+  // Each generation an entry falls behind counts as this many plies of depth when replacing
+  private static final int AGE_PENALTY = 8;
+  // Buckets at the start of the table that are sampled for hashfull, a thousand entries
+  private static final int HASHFULL_BUCKETS = 250;
+  private final long mask;
+  private int age;
+  private long probes;
+  private long hits;
+  private long cutoffs;
+  private long collisions;
+  private long stores;
+  private long emptyWrites;
+  private long updates;
+  private long staleEvictions;
+  private long shallowEvictions;
 
-  public TranspositionTable() {
-    this.table = new HashMap<>();
+  protected TranspositionTable(long buckets) {
+    this.mask = buckets - 1;
+    this.age = 0;
   }
 
-  public void storePosition(
-      long zobristKey, int ply, int score, TranspositionEntry.Flag flag, Move bestMove) {
-    TranspositionEntry newEntry = new TranspositionEntry(ply, score, flag, bestMove);
+  // Number of buckets in a table of the given size, at most maxBuckets
+  static long bucketCount(int sizeMb, long maxBuckets) {
+    if (sizeMb <= 0) {
+      throw new IllegalArgumentException("Transposition table size must be positive: " + sizeMb);
+    }
+    return Math.min(Long.highestOneBit((long) sizeMb * 1024 * 1024 / BYTES_PER_BUCKET), maxBuckets);
+  }
+
+  public static int getBestMove(long entry) {
+    return (int) (entry & 0x7FFFFFF);
+  }
+
+  public static int getFlag(long entry) {
+    return (int) (entry >>> FLAG_SHIFT) & 0x3;
+  }
+
+  public static int getDepth(long entry) {
+    return (int) (entry >>> DEPTH_SHIFT) & 0x7F;
+  }
+
+  public static int getAge(long entry) {
+    return (int) (entry >>> AGE_SHIFT) & AGE_MASK;
+  }
 
-    // Always replace scheme seems to work better than depth based one
-    table.put(zobristKey, newEntry);
+  public static int getScore(long entry) {
+    return (int) (entry >> SCORE_SHIFT);
   }
 
-  public TranspositionEntry getPosition(long zobristKey) {
-    return table.getOrDefault(zobristKey, null);
+  public void storePosition(long zobristKey, int depth, int score, int flag, int bestMove) {
+    long bucket = (zobristKey & mask) * BUCKET_SIZE * 2;
+    long replace = bucket;
+    long replacedData = NONE;
+    int lowestValue = Integer.MAX_VALUE;
+    stores++;
+
+    for (long index = bucket; index < bucket + BUCKET_SIZE * 2; index += 2) {
+      long data = getSlot(index + 1);
+      long key = getSlot(index) ^ data;
+      if (data == NONE) {
+        emptyWrites++;
+        replace = index;
+        replacedData = NONE;
+        break;
+      } else if (key == zobristKey) {
+        // A shallower bound, such as a quiescence result, says less about the position than the
+        // entry it would replace, so it is dropped. An entry keeps its move when the new result
+        // has none
+        if (flag != EXACT && depth < getDepth(data)) {
+          return;
+        }
+        if (bestMove == Move.NONE) {
+          bestMove = getBestMove(data);
+        }
+        updates++;
+        replace = index;
+        replacedData = NONE;
+        break;
+      }
+      int value = getDepth(data) - AGE_PENALTY * ((age - getAge(data)) & AGE_MASK);
+      if (value < lowestValue) {
+        lowestValue = value;
+        replace = index;
+        replacedData = data;
+      }
+    }
+
+    if (replacedData != NONE) {
+      if (getAge(replacedData) != age) {
+        staleEvictions++;
+      } else {
+        shallowEvictions++;
+      }
+    }
+
+    long data =
+        (bestMove & 0x7FFFFFFL)
+            | (long) flag << FLAG_SHIFT
+            | (long) Math.min(depth, 0x7F) << DEPTH_SHIFT
+            | (long) age << AGE_SHIFT
+            | (long) score << SCORE_SHIFT;
+    setSlot(replace, zobristKey ^ data);
+    setSlot(replace + 1, data);
   }
 
-  public void clear() {
-    table.clear();
+  public long getPosition(long zobristKey) {
+    long bucket = (zobristKey & mask) * BUCKET_SIZE * 2;
+    boolean occupied = false;
+    probes++;
+    for (long index = bucket; index < bucket + BUCKET_SIZE * 2; index += 2) {
+      long data = getSlot(index + 1);
+      if ((getSlot(index) ^ data) == zobristKey && data != NONE) {
+        hits++;
+        return data;
+      }
+      occupied |= data != NONE;
+    }
+    // The bucket held other positions that failed key verification
+    if (occupied) {
+      collisions++;
+    }
+    return NONE;
   }
+
+  // Called by the search when a probed entry decided the node without searching it
+  public void recordCutoff() {
+    cutoffs++;
+  }
+
+  // Called before every move's search so entries from earlier moves become replaceable
+  public void newSearch() {
+    age = (age + 1) & AGE_MASK;
+  }
+
+  @Override
+  public int getSizeMb() {
+    return (int) ((mask + 1) * BYTES_PER_BUCKET / (1024 * 1024));
+  }
+
+  @Override
+  public long getProbes() {
+    return probes;
+  }
+
+  @Override
+  public long getHits() {
+    return hits;
+  }
+
+  @Override
+  public long getCutoffs() {
+    return cutoffs;
+  }
+
+  @Override
+  public long getCollisions() {
+    return collisions;
+  }
+
+  @Override
+  public long getStores() {
+    return stores;
+  }
+
+  @Override
+  public long getEmptyWrites() {
+    return emptyWrites;
+  }
+
+  @Override
+  public long getUpdates() {
+    return updates;
+  }
+
+  @Override
+  public long getStaleEvictions() {
+    return staleEvictions;
+  }
+
+  @Override
+  public long getShallowEvictions() {
+    return shallowEvictions;
+  }
+
+  @Override
+  public double getHitRate() {
+    return probes == 0 ? 0 : (double) hits / probes;
+  }
+
+  // Permille of sampled entries written during the current search, as reported by UCI engines
+  @Override
+  public int getHashfull() {
+    long buckets = Math.min(HASHFULL_BUCKETS, mask + 1);
+    int used = 0;
+    for (long index = 0; index < buckets * BUCKET_SIZE * 2; index += 2) {
+      long data = getSlot(index + 1);
+      if (data != NONE && getAge(data) == age) {
+        used++;
+      }
+    }
+    return (int) (used * 1000 / (buckets * BUCKET_SIZE));
+  }
+
+  @Override
+  public void resetStatistics() {
+    probes = 0;
+    hits = 0;
+    cutoffs = 0;
+    collisions = 0;
+    stores = 0;
+    emptyWrites = 0;
+    updates = 0;
+    staleEvictions = 0;
+    shallowEvictions = 0;
+  }
+
+  public abstract void clear();
+
+  protected abstract long getSlot(long index);
+
+  protected abstract void setSlot(long index, long value);
 }
@@ -0,0 +1,39 @@
+package ChessEngine.AI;
+
+/**
+ * Transposition table counters exported over JMX. Counts are cumulative since the table was created
+ * or since the last {@link #resetStatistics}, which the controller calls before every search.
+ */
+public interface TranspositionTableMBean {
+  int getSizeMb();
+
+  long getProbes();
+
+  long getHits();
+
+  // Hits that returned a score without searching the node
+  long getCutoffs();
+
+  // Misses on a bucket that held other positions
+  long getCollisions();
+
+  long getStores();
+
+  // Stores into an unused slot
+  long getEmptyWrites();
+
+  // Stores over an older entry for the same position
+  long getUpdates();
+
+  // Stores that evicted an entry from an earlier search
+  long getStaleEvictions();
+
+  // Stores that evicted a shallower entry from the current search
+  long getShallowEvictions();
+
+  double getHitRate();
+
+  int getHashfull();
+
+  void resetStatistics();
+}
@@ -1,82 +1,62 @@
 package ChessEngine.AI;
 
 import ChessEngine.model.Bitboard;
-import java.security.SecureRandom;
 
-@SuppressWarnings("InstantiationOfUtilityClass")
+/**
+ * Zobrist keys for hashing positions. The keys are generated once, when the class is loaded, from a
+ * SplitMix64 generator with a fixed seed, so every run hashes positions the same way and search
+ * results are reproducible.
+ *
+ * <p>Piece keys are indexed by pieceBitboards index and charBoard square, which is also how the
+ * model updates its keys incrementally.
+ */
 public class Zobrist {
-  public static Bitboard bitboard;
-  public static long[][] board;
-  public static long[] enPassant;
-  public static long[] castle;
-  public static long turn;
-  private static Zobrist instance;
-
-  private Zobrist(Bitboard bitboard) {
-    Zobrist.bitboard = bitboard;
-    board = new long[12][64];
-    enPassant = new long[8];
-    castle = new long[4];
-    fillZobrist();
-  }
-
-  public static void getInstance(Bitboard bitboard) {
-    if (instance == null) {
-      instance = new Zobrist(bitboard);
-    }
-  }
-
-  public static long randomNumberGenerator() {
-    SecureRandom random = new SecureRandom();
-    return random.nextLong();
-  }
+  public static final long[][] board = new long[12][64];
+  public static final long[] enPassant = new long[8];
+  public static final long[] castle = new long[4];
+  public static final long turn;
+  private static long seed = 0x3C6EF372FE94F82BL;
 
-  public static void fillZobrist() {
+  static {
     for (int piece = 0; piece < 12; piece++) {
       for (int square = 0; square < 64; square++) {
-        board[piece][square] = randomNumberGenerator();
+        board[piece][square] = nextRandom();
       }
     }
 
     for (int col = 0; col < 8; col++) {
-      enPassant[col] = randomNumberGenerator();
+      enPassant[col] = nextRandom();
     }
 
     for (int i = 0; i < 4; i++) {
-      castle[i] = randomNumberGenerator();
+      castle[i] = nextRandom();
     }
 
-    turn = randomNumberGenerator();
+    turn = nextRandom();
   }
 
-  public static long getZobristKey() {
-    long key = 0;
-    for (int i = 0; i < 64; i++) {
-      if (bitboard.charBoard[i] == 'K') {
-        key ^= board[0][i];
-      } else if (bitboard.charBoard[i] == 'Q') {
-        key ^= board[1][i];
-      } else if (bitboard.charBoard[i] == 'R') {
-        key ^= board[2][i];
-      } else if (bitboard.charBoard[i] == 'B') {
-        key ^= board[3][i];
-      } else if (bitboard.charBoard[i] == 'N') {
-        key ^= board[4][i];
-      } else if (bitboard.charBoard[i] == 'P') {
-        key ^= board[5][i];
-      } else if (bitboard.charBoard[i] == 'k') {
-        key ^= board[6][i];
-      } else if (bitboard.charBoard[i] == 'q') {
-        key ^= board[7][i];
-      } else if (bitboard.charBoard[i] == 'r') {
-        key ^= board[8][i];
-      } else if (bitboard.charBoard[i] == 'b') {
-        key ^= board[9][i];
-      } else if (bitboard.charBoard[i] == 'n') {
-        key ^= board[10][i];
-      } else if (bitboard.charBoard[i] == 'p') {
-        key ^= board[11][i];
-      }
+  private Zobrist() {}
+
+  private static long nextRandom() {
+    long z = (seed += 0x9E3779B97F4A7C15L);
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  // Keys of the pieces in a set of bitboards, whose bit indexes are flipped to charBoard squares
+  private static long pieceKey(Bitboard bitboard, int piece) {
+    long key = 0L;
+    for (long pieces = bitboard.pieceBitboards[piece]; pieces != 0L; pieces &= pieces - 1) {
+      key ^= board[piece][Long.numberOfTrailingZeros(pieces) ^ 56];
+    }
+    return key;
+  }
+
+  public static long getZobristKey(Bitboard bitboard) {
+    long key = 0L;
+    for (int piece = 0; piece < 12; piece++) {
+      key ^= pieceKey(bitboard, piece);
     }
 
     if (bitboard.getEnPassantSquare() != 0) {
@@ -104,30 +84,11 @@ public class Zobrist {
     return key;
   }
 
-  public static long getPawnHashKey() {
-    long key = 0;
-
-    for (int i = 0; i < 64; i++) {
-      if (bitboard.charBoard[i] == 'P') {
-        key ^= board[5][i];
-      } else if (bitboard.charBoard[i] == 'p') {
-        key ^= board[11][i];
-      }
-    }
-    return key;
+  public static long getPawnHashKey(Bitboard bitboard) {
+    return pieceKey(bitboard, 5) ^ pieceKey(bitboard, 11);
   }
 
-  public static long getKingPawnProximityHashKey() {
-    long key = getPawnHashKey();
-
-    for (int i = 0; i < 64; i++) {
-      if (bitboard.charBoard[i] == 'K') {
-        key ^= board[0][i];
-      } else if (bitboard.charBoard[i] == 'k') {
-        key ^= board[6][i];
-      }
-    }
-
-    return key;
+  public static long getKingPawnProximityHashKey(Bitboard bitboard) {
+    return getPawnHashKey(bitboard) ^ pieceKey(bitboard, 0) ^ pieceKey(bitboard, 6);
   }
 }
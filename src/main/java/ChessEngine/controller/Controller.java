@@ -2,21 +2,53 @@ package ChessEngine.controller;
 
 import ChessEngine.AI.PolyBook;
 import ChessEngine.AI.Search;
+import ChessEngine.AI.TimeManager;
+import ChessEngine.AI.TranspositionTable;
+import ChessEngine.AI.TranspositionTableMBean;
 import ChessEngine.model.Model;
 import ChessEngine.model.Move;
-import java.util.List;
+import ChessEngine.model.MoveList;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
 public class Controller {
+  // The bot plays with five minutes on its clock and two seconds added after every move
+  private static final long DEFAULT_CLOCK_MILLIS = 5 * 60 * 1000;
+  private static final long DEFAULT_INCREMENT_MILLIS = 2000;
   private final Model model;
   private final Search bot;
   public int maxDepth;
+  public long remainingTimeMillis;
+  public long incrementMillis;
   private int origin;
 
   public Controller(Model model) {
     this.model = model;
     this.origin = -1;
-    this.maxDepth = 6;
+    // Upper bound for iterative deepening, below the number of killer move slots
+    this.maxDepth = 32;
+    this.remainingTimeMillis = DEFAULT_CLOCK_MILLIS;
+    this.incrementMillis = DEFAULT_INCREMENT_MILLIS;
     this.bot = new Search(model);
+    registerTranspositionTable();
+  }
+
+  // Exposes the table counters over JMX, replacing the table of any earlier game
+  private void registerTranspositionTable() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName("ChessEngine:type=TranspositionTable");
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(
+          new StandardMBean(bot.getTranspositionTable(), TranspositionTableMBean.class), name);
+    } catch (JMException e) {
+      throw new IllegalStateException("Could not register the transposition table MBean", e);
+    }
   }
 
   public int getOrigin() {
@@ -38,16 +70,17 @@ public class Controller {
     if (!model.isMoveValid(origin, square)) {
       throw new IllegalArgumentException();
     }
-    List<Move> moves = model.getBitboard().getLegalMoves();
-    Move selectedMove = null;
-    for (Move move : moves) {
-      if (move.getOrigin() == origin && move.getDestination() == square) {
+    MoveList moves = model.getLegalMoves();
+    int selectedMove = Move.NONE;
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      if (Move.getOrigin(move) == origin && Move.getDestination(move) == square) {
         selectedMove = move;
         break;
       }
     }
-    assert selectedMove != null;
-    model.movePiece(selectedMove, true, -1);
+    assert selectedMove != Move.NONE;
+    model.movePiece(selectedMove, true);
     this.origin = -1;
   }
 
@@ -56,19 +89,21 @@ public class Controller {
     model.searching = true;
     if (PolyBook.openingBookData.containsKey(model.polyKey)) {
       if (PolyBook.getBookMove(model.polyKey) != null) {
-        List<Move> moves = model.getBitboard().getLegalMoves();
+        MoveList moves = model.getLegalMoves();
         Move bookMove = PolyBook.getBookMove(model.polyKey);
-        Move selectedMove = null;
-        for (Move move : moves) {
+        int selectedMove = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+          int move = moves.get(i);
           assert bookMove != null;
-          if (move.getOrigin() == bookMove.getOrigin()
-              && move.getDestination() == bookMove.getDestination()
-              && move.getPromotion() == bookMove.getPromotion()) {
+          if (Move.getOrigin(move) == bookMove.getOrigin()
+              && Move.getDestination(move) == bookMove.getDestination()
+              && Move.getPromotion(move) == bookMove.getPromotion()) {
             selectedMove = move;
           }
         }
-        assert selectedMove != null;
-        model.movePiece(selectedMove, true, -1);
+        assert selectedMove != Move.NONE;
+        model.movePiece(selectedMove, true);
+        updateClock(startTime);
         System.out.println("Book Move");
         double eval = (double) bot.evaluation.evaluationDisplay() / 100;
         // Evaluation can't display mate or draw scores
@@ -77,15 +112,39 @@ public class Controller {
         return;
       }
     }
-    bot.search(maxDepth, 0, -999999999, 999999999);
+    TranspositionTable table = bot.getTranspositionTable();
+    table.resetStatistics();
+    model.pawnTable.resetStatistics();
+    model.kingPawnProximityTable.resetStatistics();
+    model.evaluationCache.resetStatistics();
+    TimeManager timeManager = new TimeManager(remainingTimeMillis, incrementMillis);
+    int move = bot.iterativeDeepening(maxDepth, timeManager);
+    updateClock(startTime);
     long endTime = System.nanoTime(); // Capture the end time
     long elapsedTime = endTime - startTime;
     double elapsedSeconds = (double) elapsedTime / 1_000_000_000;
+    System.out.println("Depth: " + bot.getCompletedDepth());
     System.out.println("Moves Searched: " + bot.searchCount);
     System.out.println("Search Time: " + elapsedSeconds);
     System.out.println("Moves/sec: " + bot.searchCount / elapsedSeconds);
-    Move move = bot.getBestMove();
-    model.movePiece(move, true, -1);
+    System.out.printf(
+        "TT hit rate: %.1f%%, cutoffs: %d, collisions: %d, hashfull: %d%n",
+        table.getHitRate() * 100, table.getCutoffs(), table.getCollisions(), table.getHashfull());
+    System.out.printf(
+        "Pawn hash hit rate: %.1f%% of %d entries%n",
+        model.pawnTable.getHitRate() * 100, model.pawnTable.getSize());
+    System.out.printf(
+        "King pawn hash hit rate: %.1f%% of %d entries%n",
+        model.kingPawnProximityTable.getHitRate() * 100, model.kingPawnProximityTable.getSize());
+    System.out.printf(
+        "Evaluation cache hit rate: %.1f%% of %d entries%n",
+        model.evaluationCache.getHitRate() * 100, model.evaluationCache.getSize());
+    System.out.printf(
+        "Clock: %.1f s (soft limit %d ms, hard limit %d ms)%n",
+        remainingTimeMillis / 1000.0,
+        timeManager.getSoftLimitMillis(),
+        timeManager.getHardLimitMillis());
+    model.movePiece(move, true);
     double eval = (double) bot.evaluation.evaluationDisplay() / 100;
     // Evaluation can't display mate or draw scores
     System.out.println("Evaluation: " + eval);
@@ -94,4 +153,10 @@ public class Controller {
     bot.searchCount = 0;
     bot.resetBestMove();
   }
+
+  // Charges the time spent on the move to the bot's clock and adds the increment
+  private void updateClock(long startTime) {
+    long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+    remainingTimeMillis = Math.max(remainingTimeMillis - elapsedMillis, 0) + incrementMillis;
+  }
 }
@@ -0,0 +1,220 @@
+package ChessEngine.model;
+
+/**
+ * Precomputed attack tables, built once when the class is loaded. Squares are bitboard indexes
+ * (a1 = 0, h8 = 63), the same numbering Long.numberOfTrailingZeros gives for a piece bitboard.
+ *
+ * <p>Sliding attacks use fancy magic bitboards: the relevant blockers of a square are multiplied
+ * by a magic number so that the top bits of the product index into that square's slice of a shared
+ * attack table. Magic numbers are searched for at startup with a fixed seed, so the tables are the
+ * same on every run.
+ *
+ * <p>Knight, king and pawn attacks do not depend on occupancy, so they are stored per square, as
+ * are the squares between every pair of squares on a shared rank, file or diagonal.
+ */
+public final class AttackTables {
+  private static final int[][] rookDirections = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+  private static final int[][] bishopDirections = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+  private static final int[][] knightSteps = {
+    {2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}, {2, -1}
+  };
+  private static final int[][] kingSteps = {
+    {1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}
+  };
+  private static final int[][] whitePawnSteps = {{1, -1}, {1, 1}};
+  private static final int[][] blackPawnSteps = {{-1, -1}, {-1, 1}};
+  private static final long[] knightTable = new long[64];
+  private static final long[] kingTable = new long[64];
+  private static final long[] whitePawnTable = new long[64];
+  private static final long[] blackPawnTable = new long[64];
+  private static final long[][] betweenTable = new long[64][64];
+  private static final long[] rookMasks = new long[64];
+  private static final long[] bishopMasks = new long[64];
+  private static final long[] rookMagics = new long[64];
+  private static final long[] bishopMagics = new long[64];
+  private static final int[] rookShifts = new int[64];
+  private static final int[] bishopShifts = new int[64];
+  private static final int[] rookOffsets = new int[64];
+  private static final int[] bishopOffsets = new int[64];
+  private static final long[] rookTable;
+  private static final long[] bishopTable;
+  private static long seed = 0x2545F4914F6CDD1DL;
+
+  static {
+    for (int square = 0; square < 64; square++) {
+      knightTable[square] = stepAttacks(square, knightSteps);
+      kingTable[square] = stepAttacks(square, kingSteps);
+      whitePawnTable[square] = stepAttacks(square, whitePawnSteps);
+      blackPawnTable[square] = stepAttacks(square, blackPawnSteps);
+      initBetween(square, rookDirections);
+      initBetween(square, bishopDirections);
+    }
+    rookTable = initSlider(rookDirections, rookMasks, rookMagics, rookShifts, rookOffsets);
+    bishopTable =
+        initSlider(bishopDirections, bishopMasks, bishopMagics, bishopShifts, bishopOffsets);
+  }
+
+  private AttackTables() {}
+
+  public static long rookAttacks(int square, long occupied) {
+    long blockers = occupied & rookMasks[square];
+    int index = (int) ((blockers * rookMagics[square]) >>> rookShifts[square]);
+    return rookTable[rookOffsets[square] + index];
+  }
+
+  public static long bishopAttacks(int square, long occupied) {
+    long blockers = occupied & bishopMasks[square];
+    int index = (int) ((blockers * bishopMagics[square]) >>> bishopShifts[square]);
+    return bishopTable[bishopOffsets[square] + index];
+  }
+
+  public static long queenAttacks(int square, long occupied) {
+    return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+  }
+
+  public static long knightAttacks(int square) {
+    return knightTable[square];
+  }
+
+  public static long kingAttacks(int square) {
+    return kingTable[square];
+  }
+
+  // Squares attacked by a pawn of the given color standing on the square
+  public static long pawnAttacks(boolean color, int square) {
+    return color ? whitePawnTable[square] : blackPawnTable[square];
+  }
+
+  // Squares strictly between two squares, or nothing if they do not share a line
+  public static long between(int from, int to) {
+    return betweenTable[from][to];
+  }
+
+  private static void initBetween(int square, int[][] directions) {
+    for (int[] direction : directions) {
+      long squares = 0L;
+      int rank = square / 8 + direction[0];
+      int file = square % 8 + direction[1];
+      while (rank >= 0 && rank < 8 && file >= 0 && file < 8) {
+        betweenTable[square][rank * 8 + file] = squares;
+        squares |= 1L << (rank * 8 + file);
+        rank += direction[0];
+        file += direction[1];
+      }
+    }
+  }
+
+  private static long stepAttacks(int square, int[][] steps) {
+    long attacks = 0L;
+    for (int[] step : steps) {
+      int rank = square / 8 + step[0];
+      int file = square % 8 + step[1];
+      if (rank >= 0 && rank < 8 && file >= 0 && file < 8) {
+        attacks |= 1L << (rank * 8 + file);
+      }
+    }
+    return attacks;
+  }
+
+  private static long[] initSlider(
+      int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+    int tableSize = 0;
+    for (int square = 0; square < 64; square++) {
+      masks[square] = relevantOccupancy(square, directions);
+      offsets[square] = tableSize;
+      tableSize += 1 << Long.bitCount(masks[square]);
+    }
+
+    long[] table = new long[tableSize];
+    long[] occupancies = new long[4096];
+    long[] attacks = new long[4096];
+    int[] epochs = new int[4096];
+    int epoch = 0;
+
+    for (int square = 0; square < 64; square++) {
+      long mask = masks[square];
+      int bits = Long.bitCount(mask);
+      int size = 1 << bits;
+      shifts[square] = 64 - bits;
+
+      // Enumerate every subset of the mask (Carry-Rippler) with its reference attack set
+      long subset = 0L;
+      for (int i = 0; i < size; i++) {
+        occupancies[i] = subset;
+        attacks[i] = rayAttacks(square, subset, directions);
+        subset = (subset - mask) & mask;
+      }
+
+      while (true) {
+        long magic = sparseRandom();
+        if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+          continue;
+        }
+        epoch++;
+        boolean collision = false;
+        for (int i = 0; i < size && !collision; i++) {
+          int index = (int) ((occupancies[i] * magic) >>> shifts[square]);
+          if (epochs[index] != epoch) {
+            epochs[index] = epoch;
+            table[offsets[square] + index] = attacks[i];
+          } else if (table[offsets[square] + index] != attacks[i]) {
+            collision = true;
+          }
+        }
+        if (!collision) {
+          magics[square] = magic;
+          break;
+        }
+      }
+    }
+    return table;
+  }
+
+  // Blockers on the edge of the board never change the attack set, so they are left out
+  private static long relevantOccupancy(int square, int[][] directions) {
+    long mask = 0L;
+    for (int[] direction : directions) {
+      int rank = square / 8 + direction[0];
+      int file = square % 8 + direction[1];
+      while (rank + direction[0] >= 0
+          && rank + direction[0] < 8
+          && file + direction[1] >= 0
+          && file + direction[1] < 8) {
+        mask |= 1L << (rank * 8 + file);
+        rank += direction[0];
+        file += direction[1];
+      }
+    }
+    return mask;
+  }
+
+  private static long rayAttacks(int square, long occupied, int[][] directions) {
+    long attacks = 0L;
+    for (int[] direction : directions) {
+      int rank = square / 8 + direction[0];
+      int file = square % 8 + direction[1];
+      while (rank >= 0 && rank < 8 && file >= 0 && file < 8) {
+        long target = 1L << (rank * 8 + file);
+        attacks |= target;
+        if ((occupied & target) != 0L) {
+          break;
+        }
+        rank += direction[0];
+        file += direction[1];
+      }
+    }
+    return attacks;
+  }
+
+  // Magic candidates with few set bits are found much faster
+  private static long sparseRandom() {
+    return nextRandom() & nextRandom() & nextRandom();
+  }
+
+  private static long nextRandom() {
+    seed ^= seed >>> 12;
+    seed ^= seed << 25;
+    seed ^= seed >>> 27;
+    return seed * 0x2545F4914F6CDD1DL;
+  }
+}
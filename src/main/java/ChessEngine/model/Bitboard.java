@@ -1,6 +1,6 @@
 package ChessEngine.model;
 
-import ChessEngine.AI.MoveComparator;
+import ChessEngine.AI.MoveOrdering;
 import ChessEngine.AI.PieceTables;
 import java.util.*;
 
@@ -63,40 +63,56 @@ public class Bitboard {
   public static long whiteQueenSideMask = 0x1CL; // white queen side castle squares
   public static long blackKingSideMask = 0x7000000000000000L; // black king side castle squares
   public static long blackQueenSideMask = 0x1C00000000000000L; // black queen side castle squares
+  public static final int MAX_HISTORY = 16384;
+  private static final int[] pieceIndexes = new int[128];
   final int pawnValue = 100;
   final int knightValue = 300;
   final int bishopValue = 300;
   final int rookValue = 500;
   final int queenValue = 900;
+  private final PieceTables pieceTables = new PieceTables();
+  private final MoveList pieceMoves = new MoveList();
+  private final long[] pinRays = new long[64];
   public long[] pieceBitboards;
   public char[] charBoard;
   public long attackMap;
   public int attackingPieces;
   public long attackRay;
   public long pinnedPieces;
-  public Map<Long, Character> pinnedRays;
+  public long checkers;
   public boolean currentTurn;
   public boolean whiteKingSide;
   public boolean whiteQueenSide;
   public boolean blackKingSide;
   public boolean blackQueenSide;
-  public List<Move> legalMoves;
+  public MoveList[] moveLists;
   public long occupied;
   public int materialCount;
   public int squareBonuses;
-  public Move[][] killerMoves;
+  public int[][] killerMoves;
+  // Quiet move scores by piece and destination, bounded by MAX_HISTORY in either direction
+  public int[][] historyScores;
   private long empty;
   private long whitePieces;
   private long blackPieces;
   private long enPassantSquare;
+  private boolean attacksUpdated;
+
+  static {
+    Arrays.fill(pieceIndexes, Move.NO_PIECE);
+    String pieces = "KQRBNPkqrbnp";
+    for (int i = 0; i < pieces.length(); i++) {
+      pieceIndexes[pieces.charAt(i)] = i;
+    }
+  }
 
   public Bitboard(String fen) {
     fenConverter(fen);
     this.enPassantSquare = 0L;
-    this.legalMoves = new ArrayList<>();
-    this.killerMoves = new Move[50][2];
+    this.moveLists = new MoveList[64];
+    this.killerMoves = new int[50][2];
+    this.historyScores = new int[12][64];
     updateBitboard();
-    generateLegalMoves(0);
     this.materialCount = 0;
     this.squareBonuses = 0;
   }
@@ -131,18 +147,32 @@ public class Bitboard {
   }
 
   public void updateBitboard() {
-    this.attackRay = 0xFFFFFFFFFFFFFFFFL;
-    this.attackingPieces = 0;
-    this.pinnedPieces = 0L;
     setWhitePieces();
     setBlackPieces();
     setOccupied();
     setEmpty();
+    this.attacksUpdated = false;
+  }
+
+  // The attack map, checks and pins are only worked out once something needs them
+  public void updateAttacks() {
+    if (attacksUpdated) {
+      return;
+    }
+    this.attackRay = 0xFFFFFFFFFFFFFFFFL;
+    this.attackingPieces = 0;
+    this.pinnedPieces = 0L;
     setEnemyAttackMap();
+    this.attacksUpdated = true;
   }
 
-  public void updateMaterialCount(Move move) {
-    char capturedPiece = move.getCapturedPiece();
+  public boolean isInCheck() {
+    updateAttacks();
+    return checkers != 0L;
+  }
+
+  public void updateMaterialCount(int move) {
+    char capturedPiece = Move.getCapturedPiece(move);
 
     switch (capturedPiece) {
       case 'Q' -> materialCount -= queenValue;
@@ -157,8 +187,8 @@ public class Bitboard {
       case 'p' -> materialCount += pawnValue;
     }
 
-    if (move.getPromotion() != ' ') {
-      switch (move.getPromotion()) {
+    if (Move.isPromotion(move)) {
+      switch (Move.getPromotion(move)) {
         case 'Q' -> materialCount += (queenValue - pawnValue);
         case 'R' -> materialCount += (rookValue - pawnValue);
         case 'B' -> materialCount += (bishopValue - pawnValue);
@@ -171,15 +201,14 @@ public class Bitboard {
     }
   }
 
-  public void updateSquareBonuses(Move move) {
-    PieceTables pieceTables = new PieceTables();
-    char piece = move.getPiece();
-    char capturedPiece = move.getCapturedPiece();
-    int origin = move.getOrigin();
-    int destination = move.getDestination();
+  public void updateSquareBonuses(int move) {
+    char piece = Move.getPiece(move);
+    char capturedPiece = Move.getCapturedPiece(move);
+    int origin = Move.getOrigin(move);
+    int destination = Move.getDestination(move);
 
-    if (move.getPromotion() != ' ') {
-      switch (move.getPromotion()) {
+    if (Move.isPromotion(move)) {
+      switch (Move.getPromotion(move)) {
         case 'Q' -> squareBonuses +=
             (pieceTables.getQueenSquareValue(true, destination)
                 - pieceTables.getPawnSquareValue(true, origin));
@@ -246,7 +275,7 @@ public class Bitboard {
       }
     }
 
-    if (move.isEnPassant()) {
+    if (Move.isEnPassant(move)) {
       switch (capturedPiece) {
         case 'P' -> squareBonuses -= pieceTables.getPawnSquareValue(true, destination - 8);
         case 'p' -> squareBonuses += pieceTables.getPawnSquareValue(false, destination + 8);
@@ -266,7 +295,7 @@ public class Bitboard {
       }
     }
 
-    if (move.isKingSideCastle()) {
+    if (Move.isKingSideCastle(move)) {
       switch (piece) {
         case 'K' -> squareBonuses +=
             (pieceTables.getRookSquareValue(true, 63) - pieceTables.getRookSquareValue(true, 61));
@@ -275,7 +304,7 @@ public class Bitboard {
       }
     }
 
-    if (move.isQueenSideCastle()) {
+    if (Move.isQueenSideCastle(move)) {
       switch (piece) {
         case 'K' -> squareBonuses +=
             (pieceTables.getRookSquareValue(true, 56) - pieceTables.getRookSquareValue(true, 59));
@@ -289,331 +318,252 @@ public class Bitboard {
     currentTurn = !currentTurn;
   }
 
-  public List<Move> getLegalMoves() {
+  public MoveList getMoveList(int ply) {
+    if (ply >= moveLists.length) {
+      moveLists = Arrays.copyOf(moveLists, Math.max(ply + 1, moveLists.length * 2));
+    }
+    if (moveLists[ply] == null) {
+      moveLists[ply] = new MoveList();
+    }
+    return moveLists[ply];
+  }
+
+  public MoveList generateLegalMoves(int ply, int depth) {
+    MoveList legalMoves = getMoveList(ply);
+    legalMoves.clear();
+    generateMoves(legalMoves, 0xFFFFFFFFFFFFFFFFL, 0xFFFFFFFFFFFFFFFFL, true);
+    MoveOrdering.sortMoves(legalMoves, this, depth);
     return legalMoves;
   }
 
-  public void generateLegalMoves(int depth) {
-    List<Move> legalMoves = new ArrayList<>();
+  // Captures, en passant and every promotion, including promotions by a push
+  public void generateCaptures(MoveList moveList) {
+    long enemyPieces = currentTurn ? blackPieces : whitePieces;
+    long promotionRank = currentTurn ? rankMasks[7] : rankMasks[0];
+    generateMoves(moveList, enemyPieces, enemyPieces | enPassantSquare | promotionRank, false);
+  }
 
-    if (currentTurn) {
-      if (attackingPieces == 2) {
-        legalMoves.addAll(kingMoves(pieceBitboards[0], true));
-      } else {
-        legalMoves.addAll(kingMoves(pieceBitboards[0], true));
-        legalMoves.addAll(queenMoves(pieceBitboards[1], true));
-        legalMoves.addAll(rookMoves(pieceBitboards[2], true));
-        legalMoves.addAll(bishopMoves(pieceBitboards[3], true));
-        legalMoves.addAll(knightMoves(pieceBitboards[4], true));
-        legalMoves.addAll(whitePawnMoves(pieceBitboards[5]));
-      }
-    } else {
-      if (attackingPieces == 2) {
-        legalMoves.addAll(kingMoves(pieceBitboards[6], false));
-      } else {
-        legalMoves.addAll(kingMoves(pieceBitboards[6], false));
-        legalMoves.addAll(queenMoves(pieceBitboards[7], false));
-        legalMoves.addAll(rookMoves(pieceBitboards[8], false));
-        legalMoves.addAll(bishopMoves(pieceBitboards[9], false));
-        legalMoves.addAll(knightMoves(pieceBitboards[10], false));
-        legalMoves.addAll(blackPawnMoves(pieceBitboards[11]));
-      }
-    }
-    legalMoves.sort(new MoveComparator(this, depth));
-    //    legalCaptureMoves.sort(new MoveComparator(this, depth));
-    this.legalMoves = legalMoves;
+  // Every legal move generateCaptures leaves out, castling included
+  public void generateQuiets(MoveList moveList) {
+    long promotionRank = currentTurn ? rankMasks[7] : rankMasks[0];
+    generateMoves(moveList, empty, empty & ~promotionRank & ~enPassantSquare, true);
   }
 
-  public void setEnemyAttackMap() {
-    long attackMap = 0L;
-    long attackRay = 0xFFFFFFFFFFFFFFFFL;
-    int attackingPieces = 0;
-    long pinnedPieces = 0L;
-    this.pinnedRays = new HashMap<>();
+  // Only meant for positions in check, where the attack ray already limits the other pieces to
+  // capturing or blocking the checker
+  public void generateEvasions(MoveList moveList) {
+    generateMoves(moveList, 0xFFFFFFFFFFFFFFFFL, 0xFFFFFFFFFFFFFFFFL, false);
+  }
 
+  // Pawns get their own targets so promotion pushes and en passant can be sorted with captures
+  private void generateMoves(MoveList moveList, long targets, long pawnTargets, boolean castles) {
+    updateAttacks();
     if (currentTurn) {
-      long king = pieceBitboards[0];
-      if (pieceBitboards[6] != 0L) {
-        attackMap |= kingMove(pieceBitboards[6], false, true);
-        if ((king & kingMove(pieceBitboards[6], false, true)) != 0L) {
-          attackingPieces |= pieceBitboards[6];
-        }
-      }
-      if (pieceBitboards[7] != 0L) {
-        long[] individualQueens = getIndividualPieceBitboards(pieceBitboards[7]);
-        for (long queen : individualQueens) {
-          attackMap |= queenMove(queen, false, true);
-          pinnedPieces |= setPinnedPiece(queen, 'q');
-          if ((king & queenMove(queen, false, true)) != 0L) {
-            attackRay = getDirectionalMask(queen, king, false);
-            attackMap |= getDirectionalMask(queen, king, true);
-            attackingPieces++;
-          }
-        }
-      }
-      if (pieceBitboards[8] != 0L) {
-        long[] individualRooks = getIndividualPieceBitboards(pieceBitboards[8]);
-        for (long rook : individualRooks) {
-          attackMap |= rookMove(rook, false, true);
-          pinnedPieces |= setPinnedPiece(rook, 'r');
-          if ((king & rookMove(rook, false, true)) != 0L) {
-            attackRay = getDirectionalMask(rook, king, false);
-            attackMap |= getDirectionalMask(rook, king, true);
-            attackingPieces++;
-          }
-        }
-      }
-      if (pieceBitboards[9] != 0L) {
-        long[] individualBishops = getIndividualPieceBitboards(pieceBitboards[9]);
-        for (long bishop : individualBishops) {
-          attackMap |= bishopMove(bishop, false, true);
-          pinnedPieces |= setPinnedPiece(bishop, 'b');
-          if ((king & bishopMove(bishop, false, true)) != 0L) {
-            attackRay = getDirectionalMask(bishop, king, false);
-            attackMap |= getDirectionalMask(bishop, king, true);
-            attackingPieces++;
-          }
-        }
+      kingMoves(pieceBitboards[0], true, targets, moveList);
+      if (castles) {
+        castleMoves(pieceBitboards[0], true, moveList);
       }
-      if (pieceBitboards[10] != 0L) {
-        long[] individualKnights = getIndividualPieceBitboards(pieceBitboards[10]);
-        for (long knight : individualKnights) {
-          attackMap |= knightMove(knight, false, true);
-          if ((king & knightMove(knight, false, true)) != 0L) {
-            attackRay = knight;
-            attackingPieces++;
-          }
-        }
-      }
-      if (pieceBitboards[11] != 0L) {
-        attackMap |= blackPawnCapture(pieceBitboards[11], true);
-        long[] individualPawns = getIndividualPieceBitboards(pieceBitboards[11]);
-        for (long pawn : individualPawns) {
-          if ((king & blackPawnCapture(pawn, true)) != 0L) {
-            attackRay = pawn;
-            attackingPieces++;
-          }
-        }
+      if (attackingPieces != 2) {
+        queenMoves(pieceBitboards[1], true, targets, moveList);
+        rookMoves(pieceBitboards[2], true, targets, moveList);
+        bishopMoves(pieceBitboards[3], true, targets, moveList);
+        knightMoves(pieceBitboards[4], true, targets, moveList);
+        whitePawnMoves(pieceBitboards[5], pawnTargets, moveList);
       }
     } else {
-      long king = pieceBitboards[6];
-      if (pieceBitboards[0] != 0L) {
-        attackMap |= kingMove(pieceBitboards[0], true, true);
-        if ((king & kingMove(pieceBitboards[0], true, true)) != 0L) {
-          attackingPieces |= pieceBitboards[0];
-        }
+      kingMoves(pieceBitboards[6], false, targets, moveList);
+      if (castles) {
+        castleMoves(pieceBitboards[6], false, moveList);
       }
-      if (pieceBitboards[1] != 0L) {
-        long[] individualQueens = getIndividualPieceBitboards(pieceBitboards[1]);
-        for (long queen : individualQueens) {
-          attackMap |= queenMove(queen, true, true);
-          pinnedPieces |= setPinnedPiece(queen, 'Q');
-          if ((king & queenMove(queen, true, true)) != 0L) {
-            attackRay = getDirectionalMask(queen, king, false);
-            attackMap |= getDirectionalMask(queen, king, true);
-            attackingPieces++;
-          }
-        }
+      if (attackingPieces != 2) {
+        queenMoves(pieceBitboards[7], false, targets, moveList);
+        rookMoves(pieceBitboards[8], false, targets, moveList);
+        bishopMoves(pieceBitboards[9], false, targets, moveList);
+        knightMoves(pieceBitboards[10], false, targets, moveList);
+        blackPawnMoves(pieceBitboards[11], pawnTargets, moveList);
       }
-      if (pieceBitboards[2] != 0L) {
-        long[] individualRooks = getIndividualPieceBitboards(pieceBitboards[2]);
-        for (long rook : individualRooks) {
-          attackMap |= rookMove(rook, true, true);
-          pinnedPieces |= setPinnedPiece(rook, 'R');
-          if ((king & rookMove(rook, true, true)) != 0L) {
-            attackRay = getDirectionalMask(rook, king, false);
-            attackMap |= getDirectionalMask(rook, king, true);
-            attackingPieces++;
-          }
-        }
+    }
+  }
+
+  // Checks a move from the transposition or killer table against the moves of the piece it names
+  public boolean isLegalMove(int move) {
+    if (move == Move.NONE) {
+      return false;
+    }
+    int origin = Move.getOrigin(move);
+    int piece = Move.getPieceIndex(move);
+    if (getPieceIndex(charBoard[origin]) != piece || (piece < 6) != currentTurn) {
+      return false;
+    }
+    updateAttacks();
+    if (attackingPieces == 2 && piece % 6 != 0) {
+      return false;
+    }
+
+    long all = 0xFFFFFFFFFFFFFFFFL;
+    long originBitboard = convertIntToBitboard(origin);
+    pieceMoves.clear();
+    switch (piece % 6) {
+      case 0 -> {
+        kingMoves(originBitboard, currentTurn, all, pieceMoves);
+        castleMoves(originBitboard, currentTurn, pieceMoves);
       }
-      if (pieceBitboards[3] != 0L) {
-        long[] individualBishops = getIndividualPieceBitboards(pieceBitboards[3]);
-        for (long bishop : individualBishops) {
-          attackMap |= bishopMove(bishop, true, true);
-          pinnedPieces |= setPinnedPiece(bishop, 'B');
-          if ((king & bishopMove(bishop, true, true)) != 0L) {
-            attackRay = getDirectionalMask(bishop, king, false);
-            attackMap |= getDirectionalMask(bishop, king, true);
-            attackingPieces++;
-          }
+      case 1 -> queenMoves(originBitboard, currentTurn, all, pieceMoves);
+      case 2 -> rookMoves(originBitboard, currentTurn, all, pieceMoves);
+      case 3 -> bishopMoves(originBitboard, currentTurn, all, pieceMoves);
+      case 4 -> knightMoves(originBitboard, currentTurn, all, pieceMoves);
+      default -> {
+        if (currentTurn) {
+          whitePawnMoves(originBitboard, all, pieceMoves);
+        } else {
+          blackPawnMoves(originBitboard, all, pieceMoves);
         }
       }
-      if (pieceBitboards[4] != 0L) {
-        long[] individualKnights = getIndividualPieceBitboards(pieceBitboards[4]);
-        for (long knight : individualKnights) {
-          attackMap |= knightMove(knight, true, true);
-          if ((king & knightMove(knight, true, true)) != 0L) {
-            attackRay = knight;
-            attackingPieces++;
-          }
-        }
+    }
+    return pieceMoves.contains(move);
+  }
+
+  public void setEnemyAttackMap() {
+    int enemy = currentTurn ? 6 : 0;
+    long king = currentTurn ? pieceBitboards[0] : pieceBitboards[6];
+    long ownPieces = currentTurn ? whitePieces : blackPieces;
+    long rookLike = pieceBitboards[enemy + 1] | pieceBitboards[enemy + 2];
+    long bishopLike = pieceBitboards[enemy + 1] | pieceBitboards[enemy + 3];
+
+    // Sliders see through the king so it cannot step back along the line it is checked on
+    long occupiedWithoutKing = occupied & ~king;
+    long attackMap = kingMove(pieceBitboards[enemy], !currentTurn, true);
+    for (long pieces = rookLike; pieces != 0L; pieces &= pieces - 1) {
+      attackMap |=
+          AttackTables.rookAttacks(Long.numberOfTrailingZeros(pieces), occupiedWithoutKing);
+    }
+    for (long pieces = bishopLike; pieces != 0L; pieces &= pieces - 1) {
+      attackMap |=
+          AttackTables.bishopAttacks(Long.numberOfTrailingZeros(pieces), occupiedWithoutKing);
+    }
+    for (long pieces = pieceBitboards[enemy + 4]; pieces != 0L; pieces &= pieces - 1) {
+      attackMap |= AttackTables.knightAttacks(Long.numberOfTrailingZeros(pieces));
+    }
+    attackMap |=
+        currentTurn
+            ? blackPawnCapture(pieceBitboards[11], true)
+            : whitePawnCapture(pieceBitboards[5], true);
+
+    long checkers = 0L;
+    long attackRay = 0xFFFFFFFFFFFFFFFFL;
+    long pinnedPieces = 0L;
+    if (king != 0L) {
+      int kingSquare = Long.numberOfTrailingZeros(king);
+      long rookAttacks = AttackTables.rookAttacks(kingSquare, occupied);
+      long bishopAttacks = AttackTables.bishopAttacks(kingSquare, occupied);
+      checkers =
+          (rookAttacks & rookLike)
+              | (bishopAttacks & bishopLike)
+              | (AttackTables.knightAttacks(kingSquare) & pieceBitboards[enemy + 4])
+              | (AttackTables.pawnAttacks(currentTurn, kingSquare) & pieceBitboards[enemy + 5]);
+      if (checkers != 0L) {
+        int checker = Long.numberOfTrailingZeros(checkers);
+        attackRay = AttackTables.between(kingSquare, checker) | (1L << checker);
       }
-      if (pieceBitboards[5] != 0L) {
-        attackMap |= whitePawnCapture(pieceBitboards[5], true);
-        long[] individualPawns = getIndividualPieceBitboards(pieceBitboards[5]);
-        for (long pawn : individualPawns) {
-          if ((king & whitePawnCapture(pawn, true)) != 0L) {
-            attackRay = pawn;
-            attackingPieces++;
-          }
-        }
+
+      // Lifting our own pieces off the king's lines shows the sliders pinning them
+      long rookXray =
+          rookAttacks ^ AttackTables.rookAttacks(kingSquare, occupied ^ (rookAttacks & ownPieces));
+      long bishopXray =
+          bishopAttacks
+              ^ AttackTables.bishopAttacks(kingSquare, occupied ^ (bishopAttacks & ownPieces));
+      for (long pinners = (rookXray & rookLike) | (bishopXray & bishopLike);
+          pinners != 0L;
+          pinners &= pinners - 1) {
+        int pinner = Long.numberOfTrailingZeros(pinners);
+        long ray = AttackTables.between(kingSquare, pinner) | (1L << pinner);
+        long pinned = ray & ownPieces;
+        pinnedPieces |= pinned;
+        pinRays[Long.numberOfTrailingZeros(pinned)] = ray;
       }
     }
 
+    this.checkers = checkers;
     this.pinnedPieces = pinnedPieces;
     this.attackRay = attackRay;
-    this.attackingPieces = attackingPieces;
+    this.attackingPieces = Long.bitCount(checkers);
     this.attackMap = attackMap;
   }
 
-  public long setPinnedPiece(long piece, char pieceType) {
-    long pinPieces = Character.isUpperCase(pieceType) ? blackPieces : whitePieces;
-    long blockingPieces = Character.isUpperCase(pieceType) ? whitePieces : blackPieces;
-    pieceType = Character.toLowerCase(pieceType);
-    int position = Long.numberOfTrailingZeros(piece);
+  // En passant removes two pawns from the board at once, which can expose the king along a rank
+  private boolean isEnPassantLegal(int origin, int destination) {
     long king = currentTurn ? pieceBitboards[0] : pieceBitboards[6];
-    long bottomMask = (1L << Long.numberOfTrailingZeros(piece)) - 1;
-    long upperMask = ~bottomMask & ~piece;
-    long bottomKingMask = (1L << Long.numberOfTrailingZeros(king)) - 1;
-    long upperKingMask = ~bottomKingMask & ~king;
-    long diagonal = diagonalMasks[(position / 8) + (position % 8)];
-    long antiDiagonal = antiDiagonalMasks[(7 + (position / 8) - (position % 8))];
-
-    long north = (0x0101010101010100L) << position;
-    long south = (0x0080808080808080L) >> (position ^ 63);
-    long east = 2 * ((1L << (position | 7)) - (1L << position));
-    long west = (1L << position) - (1L << (position & 56));
-
-    long northEast = (antiDiagonal & upperMask) & ~piece;
-    long northWest = (diagonal & upperMask) & ~piece;
-    long southEast = (diagonal & bottomMask) & ~piece;
-    long southWest = (antiDiagonal & bottomMask) & ~piece;
-
-    if (pieceType == 'r' | pieceType == 'q') {
-      if ((north & king) != 0L) {
-        north &= bottomKingMask;
-        if ((Long.bitCount(north & pinPieces) == 1) & (north & blockingPieces) == 0L) {
-          pinnedRays.put(north & pinPieces, 'v');
-          return north & pinPieces;
-        }
-      } else if ((south & king) != 0L) {
-        south &= upperKingMask;
-        if ((Long.bitCount(south & pinPieces) == 1) & (south & blockingPieces) == 0L) {
-          pinnedRays.put(south & pinPieces, 'v');
-          return south & pinPieces;
-        }
-      } else if ((east & king) != 0L) {
-        east &= bottomKingMask;
-        if ((Long.bitCount(east & pinPieces) == 1) & (east & blockingPieces) == 0L) {
-          pinnedRays.put(east & pinPieces, 'h');
-          return east & pinPieces;
-        }
-      } else if ((west & king) != 0L) {
-        west &= upperKingMask;
-        if ((Long.bitCount(west & pinPieces) == 1) & (west & blockingPieces) == 0L) {
-          pinnedRays.put(west & pinPieces, 'h');
-          return west & pinPieces;
-        }
-      }
+    if (king == 0L) {
+      return true;
     }
-    if (pieceType == 'b' | pieceType == 'q') {
-      if ((northEast & king) != 0L) {
-        northEast &= bottomKingMask;
-        if ((Long.bitCount(northEast & pinPieces) == 1) & (northEast & blockingPieces) == 0L) {
-          pinnedRays.put(northEast & pinPieces, 'a');
-          return northEast & pinPieces;
-        }
-      } else if ((northWest & king) != 0L) {
-        northWest &= bottomKingMask;
-        if ((Long.bitCount(northWest & pinPieces) == 1) & (northWest & blockingPieces) == 0L) {
-          pinnedRays.put(northWest & pinPieces, 'd');
-          return northWest & pinPieces;
-        }
-      } else if ((southEast & king) != 0L) {
-        southEast &= upperKingMask;
-        if ((Long.bitCount(southEast & pinPieces) == 1) & (southEast & blockingPieces) == 0L) {
-          pinnedRays.put(southEast & pinPieces, 'd');
-          return southEast & pinPieces;
-        }
-      } else if (((southWest & king) != 0L)) {
-        southWest &= upperKingMask;
-        if ((Long.bitCount(southWest & pinPieces) == 1) & (southWest & blockingPieces) == 0L) {
-          pinnedRays.put(southWest & pinPieces, 'a');
-          return southWest & pinPieces;
-        }
-      }
-    }
-    return 0L;
+    int enemy = currentTurn ? 6 : 0;
+    int kingSquare = Long.numberOfTrailingZeros(king);
+    long destinationBitboard = convertIntToBitboard(destination);
+    long capturedPawn = currentTurn ? destinationBitboard >>> 8 : destinationBitboard << 8;
+    long occupiedAfter =
+        (occupied ^ convertIntToBitboard(origin) ^ capturedPawn) | destinationBitboard;
+    long rookLike = pieceBitboards[enemy + 1] | pieceBitboards[enemy + 2];
+    long bishopLike = pieceBitboards[enemy + 1] | pieceBitboards[enemy + 3];
+    long enemyPawns = pieceBitboards[enemy + 5] & ~capturedPawn;
+
+    return (AttackTables.rookAttacks(kingSquare, occupiedAfter) & rookLike) == 0L
+        && (AttackTables.bishopAttacks(kingSquare, occupiedAfter) & bishopLike) == 0L
+        && (AttackTables.knightAttacks(kingSquare) & pieceBitboards[enemy + 4]) == 0L
+        && (AttackTables.pawnAttacks(currentTurn, kingSquare) & enemyPawns) == 0L;
   }
 
-  public long getDirectionalMask(long piece, long king, boolean isAttackMap) {
-    int position = Long.numberOfTrailingZeros(piece);
-    long bottomMask = (1L << Long.numberOfTrailingZeros(piece)) - 1;
-    long upperMask = ~bottomMask & ~piece;
-    long diagonal = diagonalMasks[(position / 8) + (position % 8)];
-    long antiDiagonal = antiDiagonalMasks[(7 + (position / 8) - (position % 8))];
-    long bottomKingMask = (1L << Long.numberOfTrailingZeros(king)) - 1;
-    long upperKingMask = ~bottomKingMask & ~king;
-
-    long north = (0x0101010101010100L) << position;
-    long south = (0x0080808080808080L) >> (position ^ 63);
-    long east = 2 * ((1L << (position | 7)) - (1L << position));
-    long west = (1L << position) - (1L << (position & 56));
-
-    long northEast = (antiDiagonal & upperMask) & ~piece;
-    long northWest = (diagonal & upperMask) & ~piece;
-    long southEast = (diagonal & bottomMask) & ~piece;
-    long southWest = (antiDiagonal & bottomMask) & ~piece;
-
-    if ((north & king) != 0L) {
-      return isAttackMap ? north : (north | piece) & bottomKingMask & ~king;
-    } else if ((south & king) != 0L) {
-      return isAttackMap ? south : (south | piece) & upperKingMask & ~king;
-    } else if ((east & king) != 0L) {
-      return isAttackMap ? east : (east | piece) & bottomKingMask & ~king;
-    } else if ((west & king) != 0L) {
-      return isAttackMap ? west : (west | piece) & upperKingMask & ~king;
-    } else if ((northEast & king) != 0L) {
-      return isAttackMap ? northEast : (northEast | piece) & bottomKingMask & ~king;
-    } else if ((northWest & king) != 0L) {
-      return isAttackMap ? northWest : (northWest | piece) & bottomKingMask & ~king;
-    } else if ((southEast & king) != 0L) {
-      return isAttackMap ? southEast : (southEast | piece) & upperKingMask & ~king;
-    } else if ((southWest & king) != 0L) {
-      return isAttackMap ? southWest : (southWest | piece) & upperKingMask & ~king;
-    } else return 0L;
-  }
-
-  public void recordKillerMove(Move move, int depth) {
-    if (move == null) {
+  public void recordKillerMove(int move, int depth) {
+    if (move == Move.NONE) {
       return;
     }
 
-    if (killerMoves[depth][0] == null
-        || (move.getOrigin() != killerMoves[depth][0].getOrigin()
-            && move.getDestination() != killerMoves[depth][0].getDestination())) {
+    if (killerMoves[depth][0] == Move.NONE
+        || (Move.getOrigin(move) != Move.getOrigin(killerMoves[depth][0])
+            && Move.getDestination(move) != Move.getDestination(killerMoves[depth][0]))) {
       killerMoves[depth][1] = killerMoves[depth][0];
       killerMoves[depth][0] = move;
     }
   }
 
-  public boolean isKillerMove(Move move, int depth) {
-    if (depth < 0 || move == null) {
+  // Rewards the quiet move that caused a beta cutoff
+  public void recordHistory(int move, int depth) {
+    updateHistory(move, Math.min(depth * depth, MAX_HISTORY));
+  }
+
+  // Punishes a quiet move searched before the one that caused a beta cutoff
+  public void penalizeHistory(int move, int depth) {
+    updateHistory(move, -Math.min(depth * depth, MAX_HISTORY));
+  }
+
+  // Deeper cutoffs move a score further. The change shrinks as a score approaches the bound in
+  // its direction, so scores saturate instead of growing forever
+  private void updateHistory(int move, int bonus) {
+    int[] scores = historyScores[Move.getPieceIndex(move)];
+    int destination = Move.getDestination(move);
+    scores[destination] += bonus - scores[destination] * Math.abs(bonus) / MAX_HISTORY;
+  }
+
+  public int getHistoryScore(int move) {
+    return historyScores[Move.getPieceIndex(move)][Move.getDestination(move)];
+  }
+
+  // Called between searches so older results count for less than the current ones
+  public void ageHistory() {
+    for (int[] scores : historyScores) {
+      for (int square = 0; square < scores.length; square++) {
+        scores[square] /= 2;
+      }
+    }
+  }
+
+  public boolean isKillerMove(int move, int depth) {
+    if (depth < 0 || move == Move.NONE) {
       return false;
     }
-    if (killerMoves[depth][0] != null) {
-      Move killerMove = killerMoves[depth][0];
-      return move.getOrigin() == killerMove.getOrigin()
-          && move.getDestination() == killerMove.getDestination()
-          && move.getPromotion() == killerMove.getPromotion()
-          && move.isEnPassant() == killerMove.isEnPassant();
-    } else if (killerMoves[depth][1] != null) {
-      Move killerMove = killerMoves[depth][1];
-      return move.getOrigin() == killerMove.getOrigin()
-          && move.getDestination() == killerMove.getDestination()
-          && move.getPromotion() == killerMove.getPromotion()
-          && move.isEnPassant() == killerMove.isEnPassant();
+    if (killerMoves[depth][0] != Move.NONE) {
+      return move == killerMoves[depth][0];
+    } else if (killerMoves[depth][1] != Move.NONE) {
+      return move == killerMoves[depth][1];
     }
     return false;
   }
@@ -700,33 +650,15 @@ public class Bitboard {
     return pieceBitboards;
   }
 
+  public static int getPieceIndex(char piece) {
+    return pieceIndexes[piece];
+  }
+
   public int convertBitboardToInt(long bitboard) {
     int bitIndex = Long.numberOfTrailingZeros(bitboard);
     return (7 - (bitIndex / 8)) * 8 + (bitIndex % 8);
   }
 
-  public int[] convertBitboardToArrayOfIndexes(long bitboard) {
-    int[] indexes = new int[Long.bitCount(bitboard)];
-    for (int i = 0; i < indexes.length; i++) {
-      int index = convertBitboardToInt(bitboard);
-      indexes[i] = index;
-      bitboard = bitboard & (bitboard - 1);
-    }
-    return indexes;
-  }
-
-  public long[] getIndividualPieceBitboards(long bitboard) {
-    int count = Long.bitCount(bitboard);
-    long[] piecePositions = new long[count];
-
-    for (int i = 0; i < count; i++) {
-      long twosComplement = ~bitboard + 1L;
-      piecePositions[i] = bitboard & twosComplement;
-      bitboard = bitboard & (bitboard - 1);
-    }
-    return piecePositions;
-  }
-
   public void setOccupied() {
     this.occupied = whitePieces | blackPieces;
   }
@@ -763,176 +695,84 @@ public class Bitboard {
     this.enPassantSquare = square;
   }
 
-  public List<Move> whitePawnMoves(long whitePawns) {
-    List<Move> moveList = new ArrayList<>();
-    long[] individualPawns = getIndividualPieceBitboards(whitePawns);
-
-    for (long pawn : individualPawns) {
+  public void whitePawnMoves(long whitePawns, long targets, MoveList moveList) {
+    for (long remaining = whitePawns; remaining != 0L; remaining &= remaining - 1) {
+      long pawn = remaining & -remaining;
       int origin = convertBitboardToInt(pawn);
-      long moveDestinationsBitboard = whitePawnMove(pawn);
-      int[] moveDestinations = convertBitboardToArrayOfIndexes(moveDestinationsBitboard);
-      for (int destination : moveDestinations) {
+      long moveDestinationsBitboard = whitePawnMove(pawn) & targets;
+      while (moveDestinationsBitboard != 0L) {
+        int destination = convertBitboardToInt(moveDestinationsBitboard);
+        moveDestinationsBitboard &= moveDestinationsBitboard - 1;
         long destinationBitboard = convertIntToBitboard(destination);
         if ((destinationBitboard & rankMasks[7]) != 0L) {
-          Move promotionQueen = new Move(origin, destination, 'P', ' ', false, false, false, 'Q');
-          Move promotionRook = new Move(origin, destination, 'P', ' ', false, false, false, 'R');
-          Move promotionBishop = new Move(origin, destination, 'P', ' ', false, false, false, 'B');
-          Move promotionKnight = new Move(origin, destination, 'P', ' ', false, false, false, 'N');
-          moveList.add(promotionQueen);
-          moveList.add(promotionRook);
-          moveList.add(promotionBishop);
-          moveList.add(promotionKnight);
+          addPromotions(moveList, origin, destination, 5, Move.NO_PIECE);
         } else {
-          Move move = new Move(origin, destination, 'P', ' ');
-          moveList.add(move);
+          moveList.add(Move.encode(origin, destination, 5, Move.NO_PIECE));
         }
       }
-      long captureDestinationsBitboard = whitePawnCapture(pawn, false);
-      int[] captureDestinations = convertBitboardToArrayOfIndexes(captureDestinationsBitboard);
-      for (int destination : captureDestinations) {
-        char capturedPiece = charBoard[destination];
+      long captureDestinationsBitboard = whitePawnCapture(pawn, false) & targets;
+      while (captureDestinationsBitboard != 0L) {
+        int destination = convertBitboardToInt(captureDestinationsBitboard);
+        captureDestinationsBitboard &= captureDestinationsBitboard - 1;
+        int capturedPiece = getPieceIndex(charBoard[destination]);
         long destinationBitboard = convertIntToBitboard(destination);
         if ((destinationBitboard & rankMasks[7]) != 0L) {
-          Move promotionQueen =
-              new Move(origin, destination, 'P', capturedPiece, false, false, false, 'Q');
-          Move promotionRook =
-              new Move(origin, destination, 'P', capturedPiece, false, false, false, 'R');
-          Move promotionBishop =
-              new Move(origin, destination, 'P', capturedPiece, false, false, false, 'B');
-          Move promotionKnight =
-              new Move(origin, destination, 'P', capturedPiece, false, false, false, 'N');
-          moveList.add(promotionQueen);
-          moveList.add(promotionRook);
-          moveList.add(promotionBishop);
-          moveList.add(promotionKnight);
+          addPromotions(moveList, origin, destination, 5, capturedPiece);
         } else if (destinationBitboard == enPassantSquare) {
-          long[] savePieceBitboards = Arrays.copyOf(pieceBitboards, pieceBitboards.length);
-          long saveAttackMap = attackMap;
-          long saveAttackRay = attackRay;
-          int saveAttackingPieces = attackingPieces;
-          long savePinnedPieces = pinnedPieces;
-          Map<Long, Character> savePinnedRays = new HashMap<>(pinnedRays);
-          boolean saveCurrentTurn = currentTurn;
-          long saveOccupied = occupied;
-          long saveEmpty = empty;
-          long saveWhitePieces = whitePieces;
-          long saveBlackPieces = blackPieces;
-          long saveEnPassantSquare = enPassantSquare;
-          long originBitboard = convertIntToBitboard(origin);
-          pieceBitboards[5] ^= originBitboard;
-          pieceBitboards[5] |= destinationBitboard;
-          pieceBitboards[11] ^= destinationBitboard >> 8;
-          updateBitboard();
-          if ((attackMap & pieceBitboards[0]) == 0L) {
-            Move move = new Move(origin, destination, 'P', 'p', false, false, true, ' ');
-            moveList.add(move);
+          if (isEnPassantLegal(origin, destination)) {
+            moveList.add(Move.encode(origin, destination, 5, 11, Move.NO_PIECE, Move.EN_PASSANT));
           }
-          pieceBitboards = savePieceBitboards;
-          attackMap = saveAttackMap;
-          attackRay = saveAttackRay;
-          attackingPieces = saveAttackingPieces;
-          pinnedPieces = savePinnedPieces;
-          pinnedRays = savePinnedRays;
-          currentTurn = saveCurrentTurn;
-          occupied = saveOccupied;
-          empty = saveEmpty;
-          whitePieces = saveWhitePieces;
-          blackPieces = saveBlackPieces;
-          enPassantSquare = saveEnPassantSquare;
         } else {
-          Move move = new Move(origin, destination, 'P', capturedPiece);
-          moveList.add(move);
+          moveList.add(Move.encode(origin, destination, 5, capturedPiece));
         }
       }
     }
-    return moveList;
   }
 
-  public List<Move> blackPawnMoves(long blackPawns) {
-    List<Move> moveList = new ArrayList<>();
-    long[] individualPawns = getIndividualPieceBitboards(blackPawns);
-
-    for (long pawn : individualPawns) {
+  public void blackPawnMoves(long blackPawns, long targets, MoveList moveList) {
+    for (long remaining = blackPawns; remaining != 0L; remaining &= remaining - 1) {
+      long pawn = remaining & -remaining;
       int origin = convertBitboardToInt(pawn);
-      long moveDestinationsBitboard = blackPawnMove(pawn);
-      int[] moveDestinations = convertBitboardToArrayOfIndexes(moveDestinationsBitboard);
-      for (int destination : moveDestinations) {
+      long moveDestinationsBitboard = blackPawnMove(pawn) & targets;
+      while (moveDestinationsBitboard != 0L) {
+        int destination = convertBitboardToInt(moveDestinationsBitboard);
+        moveDestinationsBitboard &= moveDestinationsBitboard - 1;
         long destinationBitboard = convertIntToBitboard(destination);
         if ((destinationBitboard & rankMasks[0]) != 0L) {
-          Move promotionQueen = new Move(origin, destination, 'p', ' ', false, false, false, 'q');
-          Move promotionRook = new Move(origin, destination, 'p', ' ', false, false, false, 'r');
-          Move promotionBishop = new Move(origin, destination, 'p', ' ', false, false, false, 'b');
-          Move promotionKnight = new Move(origin, destination, 'p', ' ', false, false, false, 'n');
-          moveList.add(promotionQueen);
-          moveList.add(promotionRook);
-          moveList.add(promotionBishop);
-          moveList.add(promotionKnight);
+          addPromotions(moveList, origin, destination, 11, Move.NO_PIECE);
         } else {
-          Move move = new Move(origin, destination, 'p', ' ');
-          moveList.add(move);
+          moveList.add(Move.encode(origin, destination, 11, Move.NO_PIECE));
         }
       }
-      long captureDestinationsBitboard = blackPawnCapture(pawn, false);
-      int[] captureDestinations = convertBitboardToArrayOfIndexes(captureDestinationsBitboard);
-      for (int destination : captureDestinations) {
-        char capturedPiece = charBoard[destination];
+      long captureDestinationsBitboard = blackPawnCapture(pawn, false) & targets;
+      while (captureDestinationsBitboard != 0L) {
+        int destination = convertBitboardToInt(captureDestinationsBitboard);
+        captureDestinationsBitboard &= captureDestinationsBitboard - 1;
+        int capturedPiece = getPieceIndex(charBoard[destination]);
         long destinationBitboard = convertIntToBitboard(destination);
         if ((destinationBitboard & rankMasks[0]) != 0L) {
-          Move promotionQueen =
-              new Move(origin, destination, 'p', capturedPiece, false, false, false, 'q');
-          Move promotionRook =
-              new Move(origin, destination, 'p', capturedPiece, false, false, false, 'r');
-          Move promotionBishop =
-              new Move(origin, destination, 'p', capturedPiece, false, false, false, 'b');
-          Move promotionKnight =
-              new Move(origin, destination, 'p', capturedPiece, false, false, false, 'n');
-          moveList.add(promotionQueen);
-          moveList.add(promotionRook);
-          moveList.add(promotionBishop);
-          moveList.add(promotionKnight);
+          addPromotions(moveList, origin, destination, 11, capturedPiece);
         } else if (destinationBitboard == enPassantSquare) {
-          long[] savePieceBitboards = Arrays.copyOf(pieceBitboards, pieceBitboards.length);
-          long saveAttackMap = attackMap;
-          long saveAttackRay = attackRay;
-          int saveAttackingPieces = attackingPieces;
-          long savePinnedPieces = pinnedPieces;
-          Map<Long, Character> savePinnedRays = new HashMap<>(pinnedRays);
-          boolean saveCurrentTurn = currentTurn;
-          long saveOccupied = occupied;
-          long saveEmpty = empty;
-          long saveWhitePieces = whitePieces;
-          long saveBlackPieces = blackPieces;
-          long saveEnPassantSquare = enPassantSquare;
-          long originBitboard = convertIntToBitboard(origin);
-          pieceBitboards[11] ^= originBitboard;
-          pieceBitboards[11] |= destinationBitboard;
-          pieceBitboards[5] ^= destinationBitboard << 8;
-          updateBitboard();
-          if ((attackMap & pieceBitboards[6]) == 0L) {
-            Move move = new Move(origin, destination, 'p', 'P', false, false, true, ' ');
-            moveList.add(move);
+          if (isEnPassantLegal(origin, destination)) {
+            moveList.add(Move.encode(origin, destination, 11, 5, Move.NO_PIECE, Move.EN_PASSANT));
           }
-          pieceBitboards = savePieceBitboards;
-          attackMap = saveAttackMap;
-          attackRay = saveAttackRay;
-          attackingPieces = saveAttackingPieces;
-          pinnedPieces = savePinnedPieces;
-          pinnedRays = savePinnedRays;
-          currentTurn = saveCurrentTurn;
-          occupied = saveOccupied;
-          empty = saveEmpty;
-          whitePieces = saveWhitePieces;
-          blackPieces = saveBlackPieces;
-          enPassantSquare = saveEnPassantSquare;
         } else {
-          Move move = new Move(origin, destination, 'p', capturedPiece);
-          moveList.add(move);
+          moveList.add(Move.encode(origin, destination, 11, capturedPiece));
         }
       }
     }
-    return moveList;
   }
 
+  // Promotion pieces follow the pawn's queen in pieceBitboards order: queen, rook, bishop, knight
+  private void addPromotions(
+      MoveList moveList, int origin, int destination, int pawn, int capturedPiece) {
+    int queen = pawn - 4;
+    for (int promotion = queen; promotion < queen + 4; promotion++) {
+      moveList.add(Move.encode(origin, destination, pawn, capturedPiece, promotion, 0));
+    }
+  }
+
+  // With isAttackMap set this accepts any set of pawns, otherwise a single pawn
   public long whitePawnCapture(long whitePawn, boolean isAttackMap) {
     if (isAttackMap) {
       long leftCaptures = ((whitePawn & ~fileMasks[0]) << 7);
@@ -940,49 +780,30 @@ public class Bitboard {
       return leftCaptures | rightCaptures;
     }
 
-    long leftCaptures = ((whitePawn & ~fileMasks[0]) << 7) & (blackPieces | enPassantSquare);
-    long rightCaptures = ((whitePawn & ~fileMasks[7]) << 9) & (blackPieces | enPassantSquare);
-
-    if ((whitePawn & pinnedPieces) != 0L) {
-      switch (pinnedRays.get(whitePawn)) {
-        case 'h', 'v' -> {
-          return 0L;
-        }
-        case 'd' -> {
-          return leftCaptures & attackRay;
-        }
-        case 'a' -> {
-          return rightCaptures & attackRay;
-        }
-      }
-    }
-    return (leftCaptures | rightCaptures) & (attackRay | enPassantSquare);
+    int position = Long.numberOfTrailingZeros(whitePawn);
+    long captures = AttackTables.pawnAttacks(true, position) & (blackPieces | enPassantSquare);
+    return pinnedPawnCaptures(whitePawn, position, captures);
   }
 
+  // With isAttackMap set this accepts any set of pawns, otherwise a single pawn
   public long blackPawnCapture(long blackPawn, boolean isAttackMap) {
     if (isAttackMap) {
       long leftCaptures = ((blackPawn & ~fileMasks[7]) >> 7);
       long rightCaptures = ((blackPawn & ~fileMasks[0]) >> 9);
       return leftCaptures | rightCaptures;
     }
-    long leftCaptures = (blackPawn & ~fileMasks[7]) >> 7 & (whitePieces | enPassantSquare);
-    long rightCaptures = (blackPawn & ~fileMasks[0]) >> 9 & (whitePieces | enPassantSquare);
 
-    if (((blackPawn & pinnedPieces) != 0L)) {
-      switch (pinnedRays.get(blackPawn)) {
-        case 'h', 'v' -> {
-          return 0L;
-        }
-        case 'd' -> {
-          return leftCaptures & attackRay;
-        }
-        case 'a' -> {
-          return rightCaptures & attackRay;
-        }
-      }
+    int position = Long.numberOfTrailingZeros(blackPawn);
+    long captures = AttackTables.pawnAttacks(false, position) & (whitePieces | enPassantSquare);
+    return pinnedPawnCaptures(blackPawn, position, captures);
+  }
+
+  private long pinnedPawnCaptures(long pawn, int position, long captures) {
+    if ((pawn & pinnedPieces) != 0L) {
+      return captures & pinRays[position] & attackRay;
     }
 
-    return (leftCaptures | rightCaptures) & (attackRay | enPassantSquare);
+    return captures & (attackRay | enPassantSquare);
   }
 
   public long whitePawnMove(long whitePawn) {
@@ -990,14 +811,7 @@ public class Bitboard {
     long forwardTwo = ((whitePawn & rankMasks[1]) << 16) & (empty << 8) & ~occupied;
 
     if ((whitePawn & pinnedPieces) != 0L) {
-      switch (pinnedRays.get(whitePawn)) {
-        case 'h', 'd', 'a' -> {
-          return 0L;
-        }
-        case 'v' -> {
-          return (forwardOne | forwardTwo) & attackRay;
-        }
-      }
+      return (forwardOne | forwardTwo) & pinRays[Long.numberOfTrailingZeros(whitePawn)] & attackRay;
     }
     return (forwardOne | forwardTwo) & attackRay;
   }
@@ -1007,61 +821,36 @@ public class Bitboard {
     long forwardTwo = ((blackPawn & rankMasks[6]) >> 16) & (empty >> 8) & ~occupied;
 
     if ((blackPawn & pinnedPieces) != 0L) {
-      switch (pinnedRays.get(blackPawn)) {
-        case 'h', 'd', 'a' -> {
-          return 0L;
-        }
-        case 'v' -> {
-          return (forwardOne | forwardTwo) & attackRay;
-        }
-      }
+      return (forwardOne | forwardTwo) & pinRays[Long.numberOfTrailingZeros(blackPawn)] & attackRay;
     }
     return (forwardOne | forwardTwo) & attackRay;
   }
 
-  public List<Move> rookMoves(long rooks, boolean color) {
-    char piece = color ? 'R' : 'r';
-    List<Move> moveList = new ArrayList<>();
-    long[] individualRooks = getIndividualPieceBitboards(rooks);
-    for (long rook : individualRooks) {
+  public void rookMoves(long rooks, boolean color, long targets, MoveList moveList) {
+    int piece = color ? 2 : 8;
+    for (long remaining = rooks; remaining != 0L; remaining &= remaining - 1) {
+      long rook = remaining & -remaining;
       int origin = convertBitboardToInt(rook);
-      long destinationsBitboard = rookMove(rook, currentTurn, false);
-      int[] destinations = convertBitboardToArrayOfIndexes(destinationsBitboard);
-      for (int destination : destinations) {
-        char capturedPiece = charBoard[destination];
-        Move move = new Move(origin, destination, piece, capturedPiece);
-        moveList.add(move);
+      long destinationsBitboard = rookMove(rook, currentTurn, false) & targets;
+      while (destinationsBitboard != 0L) {
+        int destination = convertBitboardToInt(destinationsBitboard);
+        destinationsBitboard &= destinationsBitboard - 1;
+        moveList.add(
+            Move.encode(origin, destination, piece, getPieceIndex(charBoard[destination])));
       }
     }
-    return moveList;
   }
 
   public long rookMove(long rook, boolean color, boolean isAttackMap) {
     long currentPieces = color ? whitePieces : blackPieces;
     int position = Long.numberOfTrailingZeros(rook);
-    long rank = rankMasks[position / 8];
-    long file = fileMasks[position % 8];
-    long horizontal =
-        (occupied - 2 * rook) ^ Long.reverse(Long.reverse(occupied) - 2 * Long.reverse(rook));
-    long vertical =
-        (occupied & file) - (2 * rook)
-            ^ Long.reverse(Long.reverse(occupied & file) - (2 * Long.reverse(rook)));
+    long rookAttacks = AttackTables.rookAttacks(position, occupied);
 
     if (((rook & pinnedPieces) != 0L) && !isAttackMap) {
-      switch (pinnedRays.get(rook)) {
-        case 'h' -> {
-          return (horizontal & rank) & ~currentPieces & attackRay;
-        }
-        case 'v' -> {
-          return (vertical & file) & ~currentPieces & attackRay;
-        }
-        case 'd', 'a' -> {
-          return 0L;
-        }
-      }
+      return rookAttacks & pinRays[position] & ~currentPieces & attackRay;
     }
 
-    long attacks = ((horizontal & rank) | (vertical & file)) & attackRay;
+    long attacks = rookAttacks & attackRay;
 
     if (isAttackMap) {
       return attacks;
@@ -1070,50 +859,31 @@ public class Bitboard {
     return attacks & ~currentPieces;
   }
 
-  public List<Move> bishopMoves(long bishops, boolean color) {
-    char piece = color ? 'B' : 'b';
-    List<Move> moveList = new ArrayList<>();
-    long[] individualBishops = getIndividualPieceBitboards(bishops);
-    for (long bishop : individualBishops) {
+  public void bishopMoves(long bishops, boolean color, long targets, MoveList moveList) {
+    int piece = color ? 3 : 9;
+    for (long remaining = bishops; remaining != 0L; remaining &= remaining - 1) {
+      long bishop = remaining & -remaining;
       int origin = convertBitboardToInt(bishop);
-      long destinationsBitboard = bishopMove(bishop, currentTurn, false);
-      int[] destinations = convertBitboardToArrayOfIndexes(destinationsBitboard);
-      for (int destination : destinations) {
-        char capturedPiece = charBoard[destination];
-        Move move = new Move(origin, destination, piece, capturedPiece);
-        moveList.add(move);
+      long destinationsBitboard = bishopMove(bishop, currentTurn, false) & targets;
+      while (destinationsBitboard != 0L) {
+        int destination = convertBitboardToInt(destinationsBitboard);
+        destinationsBitboard &= destinationsBitboard - 1;
+        moveList.add(
+            Move.encode(origin, destination, piece, getPieceIndex(charBoard[destination])));
       }
     }
-    return moveList;
   }
 
   public long bishopMove(long bishop, boolean color, boolean isAttackMap) {
     long currentPieces = color ? whitePieces : blackPieces;
     int position = Long.numberOfTrailingZeros(bishop);
-    long diagonal = diagonalMasks[(position / 8) + (position % 8)];
-    long antiDiagonal = antiDiagonalMasks[(7 + (position / 8) - (position % 8))];
-    long diagonalMove =
-        ((occupied & diagonal) - (2 * bishop))
-            ^ Long.reverse(Long.reverse(occupied & diagonal) - (2 * Long.reverse(bishop)));
-    long antiDiagonalMove =
-        ((occupied & antiDiagonal) - (2 * bishop))
-            ^ Long.reverse(Long.reverse(occupied & antiDiagonal) - (2 * Long.reverse(bishop)));
+    long bishopAttacks = AttackTables.bishopAttacks(position, occupied);
 
     if (((bishop & pinnedPieces) != 0L) && !isAttackMap) {
-      switch (pinnedRays.get(bishop)) {
-        case 'h', 'v' -> {
-          return 0L;
-        }
-        case 'd' -> {
-          return (diagonalMove & diagonal) & ~currentPieces & attackRay;
-        }
-        case 'a' -> {
-          return (antiDiagonalMove & antiDiagonal) & ~currentPieces & attackRay;
-        }
-      }
+      return bishopAttacks & pinRays[position] & ~currentPieces & attackRay;
     }
 
-    long attacks = ((diagonalMove & diagonal) | (antiDiagonalMove & antiDiagonal)) & attackRay;
+    long attacks = bishopAttacks & attackRay;
 
     if (isAttackMap) {
       return attacks;
@@ -1122,66 +892,30 @@ public class Bitboard {
     return attacks & ~currentPieces;
   }
 
-  public List<Move> queenMoves(long queens, boolean color) {
-    char piece = color ? 'Q' : 'q';
-    List<Move> moveList = new ArrayList<>();
-    long[] individualQueens = getIndividualPieceBitboards(queens);
-    for (long queen : individualQueens) {
+  public void queenMoves(long queens, boolean color, long targets, MoveList moveList) {
+    int piece = color ? 1 : 7;
+    for (long remaining = queens; remaining != 0L; remaining &= remaining - 1) {
+      long queen = remaining & -remaining;
       int origin = convertBitboardToInt(queen);
-      long destinationsBitboard = queenMove(queen, currentTurn, false);
-      int[] destinations = convertBitboardToArrayOfIndexes(destinationsBitboard);
-      for (int destination : destinations) {
-        char capturedPiece = charBoard[destination];
-        Move move = new Move(origin, destination, piece, capturedPiece);
-        moveList.add(move);
+      long destinationsBitboard = queenMove(queen, currentTurn, false) & targets;
+      while (destinationsBitboard != 0L) {
+        int destination = convertBitboardToInt(destinationsBitboard);
+        destinationsBitboard &= destinationsBitboard - 1;
+        moveList.add(
+            Move.encode(origin, destination, piece, getPieceIndex(charBoard[destination])));
       }
     }
-    return moveList;
   }
 
   public long queenMove(long queen, boolean color, boolean isAttackMap) {
     long currentPieces = color ? whitePieces : blackPieces;
     int position = Long.numberOfTrailingZeros(queen);
-    long rank = rankMasks[position / 8];
-    long file = fileMasks[position % 8];
-    long diagonal = diagonalMasks[(position / 8) + (position % 8)];
-    long antiDiagonal = antiDiagonalMasks[(7 + (position / 8) - (position % 8))];
-
-    long horizontal =
-        (occupied - 2 * queen) ^ Long.reverse(Long.reverse(occupied) - 2 * Long.reverse(queen));
-    long vertical =
-        (occupied & file) - (2 * queen)
-            ^ Long.reverse(Long.reverse(occupied & file) - (2 * Long.reverse(queen)));
-    long diagonalMove =
-        ((occupied & diagonal) - (2 * queen))
-            ^ Long.reverse(Long.reverse(occupied & diagonal) - (2 * Long.reverse(queen)));
-    long antiDiagonalMove =
-        ((occupied & antiDiagonal) - (2 * queen))
-            ^ Long.reverse(Long.reverse(occupied & antiDiagonal) - (2 * Long.reverse(queen)));
+    long attacks = AttackTables.queenAttacks(position, occupied);
 
     if (((queen & pinnedPieces) != 0L) && !isAttackMap) {
-      switch (pinnedRays.get(queen)) {
-        case 'h' -> {
-          return (horizontal & rank) & ~currentPieces & attackRay;
-        }
-        case 'v' -> {
-          return (vertical & file) & ~currentPieces & attackRay;
-        }
-        case 'd' -> {
-          return (diagonalMove & diagonal) & ~currentPieces & attackRay;
-        }
-        case 'a' -> {
-          return (antiDiagonalMove & antiDiagonal) & ~currentPieces & attackRay;
-        }
-      }
+      return attacks & pinRays[position] & ~currentPieces & attackRay;
     }
 
-    long attacks =
-        (horizontal & rank)
-            | (vertical & file)
-            | (diagonalMove & diagonal)
-            | (antiDiagonalMove & antiDiagonal);
-
     if (isAttackMap) {
       return attacks & attackRay;
     }
@@ -1189,21 +923,19 @@ public class Bitboard {
     return attacks & ~currentPieces & attackRay;
   }
 
-  public List<Move> knightMoves(long knights, boolean color) {
-    char piece = color ? 'N' : 'n';
-    List<Move> moveList = new ArrayList<>();
-    long[] individualKnights = getIndividualPieceBitboards(knights);
-    for (long knight : individualKnights) {
+  public void knightMoves(long knights, boolean color, long targets, MoveList moveList) {
+    int piece = color ? 4 : 10;
+    for (long remaining = knights; remaining != 0L; remaining &= remaining - 1) {
+      long knight = remaining & -remaining;
       int origin = convertBitboardToInt(knight);
-      long destinationsBitboard = knightMove(knight, color, false);
-      int[] destinations = convertBitboardToArrayOfIndexes(destinationsBitboard);
-      for (int destination : destinations) {
-        char capturedPiece = charBoard[destination];
-        Move move = new Move(origin, destination, piece, capturedPiece);
-        moveList.add(move);
+      long destinationsBitboard = knightMove(knight, color, false) & targets;
+      while (destinationsBitboard != 0L) {
+        int destination = convertBitboardToInt(destinationsBitboard);
+        destinationsBitboard &= destinationsBitboard - 1;
+        moveList.add(
+            Move.encode(origin, destination, piece, getPieceIndex(charBoard[destination])));
       }
     }
-    return moveList;
   }
 
   public long knightMove(long knight, boolean color, boolean isAttackMap) {
@@ -1212,16 +944,7 @@ public class Bitboard {
     }
 
     long currentPieces = color ? whitePieces : blackPieces;
-    long nne = (knight << 17) & ~(fileMasks[0]);
-    long nee = (knight << 10) & ~(fileMasks[0] | fileMasks[1]);
-    long see = (knight >>> 6) & ~(fileMasks[0] | fileMasks[1]);
-    long sse = (knight >>> 15) & ~(fileMasks[0]);
-    long nnw = (knight << 15) & ~(fileMasks[7]);
-    long nww = (knight << 6) & ~(fileMasks[6] | fileMasks[7]);
-    long sww = (knight >>> 10) & ~(fileMasks[6] | fileMasks[7]);
-    long ssw = (knight >>> 17) & ~(fileMasks[7]);
-
-    long attacks = (nne | nee | see | sse | nnw | nww | sww | ssw) & attackRay;
+    long attacks = AttackTables.knightAttacks(Long.numberOfTrailingZeros(knight)) & attackRay;
 
     if (isAttackMap) {
       return attacks;
@@ -1230,45 +953,24 @@ public class Bitboard {
     return attacks & ~currentPieces;
   }
 
-  public List<Move> kingMoves(long king, boolean color) {
-    char piece = color ? 'K' : 'k';
-    List<Move> moveList = new ArrayList<>();
+  public void kingMoves(long king, boolean color, long targets, MoveList moveList) {
+    int piece = color ? 0 : 6;
     int origin = convertBitboardToInt(king);
-    long destinationsBitboard = kingMove(king, color, false);
-    int[] destinations = convertBitboardToArrayOfIndexes(destinationsBitboard);
-    for (int destination : destinations) {
-      char capturedPiece = charBoard[destination];
-      Move move;
-      boolean castle = Math.abs(destination - origin) == 2;
-      if (castle) {
-        if (destination > origin) {
-          move = new Move(origin, destination, piece, ' ', true, false, false, ' ');
-        } else {
-          move = new Move(origin, destination, piece, ' ', false, true, false, ' ');
-        }
-      } else {
-        move = new Move(origin, destination, piece, capturedPiece);
-      }
-      moveList.add(move);
+    long destinationsBitboard = kingMove(king, color, false) & targets;
+    while (destinationsBitboard != 0L) {
+      int destination = convertBitboardToInt(destinationsBitboard);
+      destinationsBitboard &= destinationsBitboard - 1;
+      moveList.add(Move.encode(origin, destination, piece, getPieceIndex(charBoard[destination])));
     }
-    List<Move> castleMoves = castleMoves(king, color);
-    moveList.addAll(castleMoves);
-    return moveList;
   }
 
   public long kingMove(long king, boolean color, boolean isAttackMap) {
-    long currentPieces = color ? whitePieces : blackPieces;
-
-    long n = (king & ~rankMasks[7]) << 8;
-    long s = (king & ~rankMasks[0]) >>> 8;
-    long e = (king & ~fileMasks[7]) << 1;
-    long w = (king & ~fileMasks[0]) >>> 1;
-    long ne = (king & ~rankMasks[7] & ~fileMasks[7]) << 9;
-    long se = (king & ~rankMasks[0] & ~fileMasks[7]) >>> 7;
-    long nw = (king & ~rankMasks[7] & ~fileMasks[0]) << 7;
-    long sw = (king & ~rankMasks[0] & ~fileMasks[0]) >>> 9;
+    if (king == 0L) {
+      return 0L;
+    }
 
-    long attacks = (n | s | e | w | ne | se | nw | sw);
+    long currentPieces = color ? whitePieces : blackPieces;
+    long attacks = AttackTables.kingAttacks(Long.numberOfTrailingZeros(king));
 
     if (isAttackMap) {
       return attacks;
@@ -1277,25 +979,19 @@ public class Bitboard {
     return attacks & ~currentPieces & ~attackMap;
   }
 
-  public List<Move> castleMoves(long king, boolean color) {
-    char piece = color ? 'K' : 'k';
-    List<Move> moveList = new ArrayList<>();
+  public void castleMoves(long king, boolean color, MoveList moveList) {
+    int piece = color ? 0 : 6;
     int origin = convertBitboardToInt(king);
     long destinationsBitboard = castleMove(king, color);
     if (destinationsBitboard == 0L) {
-      return moveList;
+      return;
     }
-    int[] destinations = convertBitboardToArrayOfIndexes(destinationsBitboard);
-    for (int destination : destinations) {
-      Move move;
-      if (destination > origin) {
-        move = new Move(origin, destination, piece, ' ', true, false, false, ' ');
-      } else {
-        move = new Move(origin, destination, piece, ' ', false, true, false, ' ');
-      }
-      moveList.add(move);
+    while (destinationsBitboard != 0L) {
+      int destination = convertBitboardToInt(destinationsBitboard);
+      destinationsBitboard &= destinationsBitboard - 1;
+      int flag = destination > origin ? Move.KING_SIDE_CASTLE : Move.QUEEN_SIDE_CASTLE;
+      moveList.add(Move.encode(origin, destination, piece, Move.NO_PIECE, Move.NO_PIECE, flag));
     }
-    return moveList;
   }
 
   public long castleMove(long king, boolean color) {
@@ -1,6 +1,9 @@
 package ChessEngine.model;
 
-import ChessEngine.AI.PawnEntry;
+import ChessEngine.AI.EvaluationCache;
+import ChessEngine.AI.HeapTranspositionTable;
+import ChessEngine.AI.KingPawnTable;
+import ChessEngine.AI.PawnHashTable;
 import ChessEngine.AI.PolyBook;
 import ChessEngine.AI.TranspositionTable;
 import ChessEngine.AI.Zobrist;
@@ -9,12 +12,12 @@ import java.util.*;
 public class Model {
   private final Bitboard bitboard;
   private final List<ModelObserver> observers;
-  private final Stack<MoveInfo> moveStack;
-  public Map<Long, Integer> boardState;
+  private MoveInfo[] moveStack;
   public boolean searching;
   public TranspositionTable transpositionTable;
-  public HashMap<Long, PawnEntry> pawnTable;
-  public HashMap<Long, Integer> kingPawnProximityTable;
+  public PawnHashTable pawnTable;
+  public KingPawnTable kingPawnProximityTable;
+  public EvaluationCache evaluationCache;
   public long pawnHashKey;
   public long kingPawnProximityHashKey;
   public boolean hasWhiteCastled;
@@ -28,6 +31,11 @@ public class Model {
   private char promotedPiece;
   private int moveCount;
   private long zobristKey;
+  private int moveStackSize;
+  // Ply of the position after the last null move, repetitions are not looked for before it
+  private int nullMovePly;
+  private long[] keyHistory;
+  private boolean[] movesGenerated;
 
   public Model(String fen) {
     this.bitboard = new Bitboard(fen);
@@ -35,21 +43,24 @@ public class Model {
     this.currentTurn = bitboard.currentTurn;
     this.promotedPiece = ' ';
     this.moveCount = 0;
-    this.boardState = new HashMap<>();
-    this.moveStack = new Stack<>();
+    this.moveStack = new MoveInfo[256];
+    this.moveStackSize = 0;
     this.selectedPlayer = true;
     this.searching = false;
-    Zobrist.getInstance(bitboard);
-    this.zobristKey = Zobrist.getZobristKey();
-    this.pawnHashKey = Zobrist.getPawnHashKey();
-    this.kingPawnProximityHashKey = Zobrist.getKingPawnProximityHashKey();
-    this.transpositionTable = new TranspositionTable();
-    this.pawnTable = new HashMap<>();
-    this.kingPawnProximityTable = new HashMap<>();
+    this.zobristKey = Zobrist.getZobristKey(bitboard);
+    this.keyHistory = new long[moveStack.length + 1];
+    this.keyHistory[0] = zobristKey;
+    this.movesGenerated = new boolean[moveStack.length + 1];
+    this.pawnHashKey = Zobrist.getPawnHashKey(bitboard);
+    this.kingPawnProximityHashKey = Zobrist.getKingPawnProximityHashKey(bitboard);
+    this.transpositionTable = new HeapTranspositionTable();
+    this.pawnTable = new PawnHashTable();
+    this.kingPawnProximityTable = new KingPawnTable();
+    this.evaluationCache = new EvaluationCache();
     this.hasWhiteCastled = false;
     this.hasBlackCastled = false;
-    PolyBook.getInstance(bitboard);
-    this.polyKey = PolyBook.getPolyKey();
+    PolyBook.getInstance();
+    this.polyKey = PolyBook.getPolyKey(bitboard);
     polyKeyEnPassantFile = 0;
     PolyBook.getBookMove(polyKey);
   }
@@ -74,6 +85,10 @@ public class Model {
     return zobristKey;
   }
 
+  public int getPly() {
+    return moveStackSize;
+  }
+
   public boolean getSelectedPlayer() {
     return selectedPlayer;
   }
@@ -90,40 +105,67 @@ public class Model {
     currentTurn = !currentTurn;
   }
 
+  public MoveList getLegalMoves() {
+    return getLegalMoves(-1);
+  }
+
+  // Moves are generated the first time a position asks for them and reused until it changes
+  public MoveList getLegalMoves(int depth) {
+    if (!movesGenerated[moveStackSize]) {
+      bitboard.generateLegalMoves(moveStackSize, depth);
+      movesGenerated[moveStackSize] = true;
+    }
+    return bitboard.getMoveList(moveStackSize);
+  }
+
+  // Quiescence reuses the ply's list for its moves, so it is no longer the full legal move list
+  public MoveList generateCaptures() {
+    MoveList moveList = bitboard.getMoveList(moveStackSize);
+    moveList.clear();
+    bitboard.generateCaptures(moveList);
+    movesGenerated[moveStackSize] = false;
+    return moveList;
+  }
+
+  public MoveList generateEvasions() {
+    MoveList moveList = bitboard.getMoveList(moveStackSize);
+    moveList.clear();
+    bitboard.generateEvasions(moveList);
+    movesGenerated[moveStackSize] = false;
+    return moveList;
+  }
+
   public boolean isMoveValid(int origin, int destination) {
-    for (Move move : this.getBitboard().getLegalMoves()) {
-      if (move.getOrigin() == origin && move.getDestination() == destination) {
+    MoveList legalMoves = getLegalMoves();
+    for (int i = 0; i < legalMoves.size(); i++) {
+      int move = legalMoves.get(i);
+      if (Move.getOrigin(move) == origin && Move.getDestination(move) == destination) {
         return true;
       }
     }
     return false;
   }
 
-  public void movePiece(Move move, boolean isActualMove, int depth) {
-    MoveInfo moveInfo = new MoveInfo();
-    moveInfo.pieceBitboards =
-        Arrays.copyOf(bitboard.pieceBitboards, bitboard.pieceBitboards.length);
-    moveInfo.charBoard = Arrays.copyOf(getBitboard().charBoard, getBitboard().charBoard.length);
-    moveInfo.legalMoves = new ArrayList<>(bitboard.getLegalMoves());
+  public void movePiece(int move, boolean isActualMove) {
+    MoveInfo moveInfo = pushMoveInfo();
+    moveInfo.move = move;
     moveInfo.zobristKey = zobristKey;
     moveInfo.WK = bitboard.whiteKingSide;
     moveInfo.WQ = bitboard.whiteQueenSide;
     moveInfo.BK = bitboard.blackKingSide;
     moveInfo.BQ = bitboard.blackQueenSide;
-    moveInfo.currentTurn = currentTurn;
     moveInfo.moveCount = moveCount;
     moveInfo.materialCount = bitboard.materialCount;
     moveInfo.squareBonuses = bitboard.squareBonuses;
-    moveInfo.boardState = new HashMap<>(boardState);
     moveInfo.pawnHashKey = pawnHashKey;
     moveInfo.kingPawnProximityHashKey = kingPawnProximityHashKey;
     moveInfo.hasWhiteCastled = hasWhiteCastled;
     moveInfo.hasBlackCastled = hasBlackCastled;
     moveInfo.polyKey = polyKey;
     moveInfo.polyKeyEnPassantFile = polyKeyEnPassantFile;
-    int origin = move.getOrigin();
-    int destination = move.getDestination();
-    char piece = move.getPiece();
+    int origin = Move.getOrigin(move);
+    int destination = Move.getDestination(move);
+    char piece = Move.getPiece(move);
 
     long originBitboard = bitboard.convertIntToBitboard(origin);
     long destinationBitboard = bitboard.convertIntToBitboard(destination);
@@ -135,9 +177,9 @@ public class Model {
     bitboard.charBoard[origin] = ' ';
     bitboard.charBoard[destination] = piece;
 
-    if (move.getCapturedPiece() != ' ' && !move.isEnPassant()) {
+    if (Move.getCapturedPiece(move) != ' ' && !Move.isEnPassant(move)) {
       resetMoveCount = true;
-      switch (move.getCapturedPiece()) {
+      switch (Move.getCapturedPiece(move)) {
         case 'K' -> bitboard.pieceBitboards[0] ^= destinationBitboard;
         case 'Q' -> bitboard.pieceBitboards[1] ^= destinationBitboard;
         case 'R' -> bitboard.pieceBitboards[2] ^= destinationBitboard;
@@ -168,7 +210,7 @@ public class Model {
         bitboard.whiteKingSide = false;
         bitboard.whiteQueenSide = false;
 
-        if (move.isKingSideCastle()) {
+        if (Move.isKingSideCastle(move)) {
           hasWhiteCastled = true;
           long removeRook = bitboard.convertIntToBitboard(63);
           long addRook = bitboard.convertIntToBitboard(61);
@@ -176,7 +218,7 @@ public class Model {
           bitboard.pieceBitboards[2] |= addRook;
           bitboard.charBoard[63] = ' ';
           bitboard.charBoard[61] = 'R';
-        } else if (move.isQueenSideCastle()) {
+        } else if (Move.isQueenSideCastle(move)) {
           hasWhiteCastled = true;
           long removeRook = bitboard.convertIntToBitboard(56);
           long addRook = bitboard.convertIntToBitboard(59);
@@ -220,12 +262,12 @@ public class Model {
             polyKeyEnPassantFile = ((destination % 8) + 1);
           }
         }
-        if (move.isEnPassant()) {
+        if (Move.isEnPassant(move)) {
           bitboard.pieceBitboards[11] ^= destinationBitboard >> 8;
           bitboard.charBoard[destination + 8] = ' ';
         }
-        if (move.getPromotion() != ' ') {
-          promotedPiece = move.getPromotion();
+        if (Move.isPromotion(move)) {
+          promotedPiece = Move.getPromotion(move);
           if (isActualMove && !searching) {
             notifyPromotion(destination);
           }
@@ -261,7 +303,7 @@ public class Model {
         bitboard.blackKingSide = false;
         bitboard.blackQueenSide = false;
 
-        if (move.isKingSideCastle()) {
+        if (Move.isKingSideCastle(move)) {
           hasBlackCastled = true;
           long removeRook = bitboard.convertIntToBitboard(7);
           long addRook = bitboard.convertIntToBitboard(5);
@@ -269,7 +311,7 @@ public class Model {
           bitboard.pieceBitboards[8] |= addRook;
           bitboard.charBoard[7] = ' ';
           bitboard.charBoard[5] = 'r';
-        } else if (move.isQueenSideCastle()) {
+        } else if (Move.isQueenSideCastle(move)) {
           hasBlackCastled = true;
           long removeRook = bitboard.convertIntToBitboard(0);
           long addRook = bitboard.convertIntToBitboard(3);
@@ -313,12 +355,12 @@ public class Model {
             polyKeyEnPassantFile = ((destination % 8) + 1);
           }
         }
-        if (move.isEnPassant()) {
+        if (Move.isEnPassant(move)) {
           bitboard.pieceBitboards[5] ^= destinationBitboard << 8;
           bitboard.charBoard[destination - 8] = ' ';
         }
-        if (move.getPromotion() != ' ') {
-          promotedPiece = move.getPromotion();
+        if (Move.isPromotion(move)) {
+          promotedPiece = Move.getPromotion(move);
           if (isActualMove & !searching) {
             notifyPromotion(destination);
           }
@@ -352,7 +394,6 @@ public class Model {
     updateHashKeys(move, moveInfo);
     bitboard.updateMaterialCount(move);
     bitboard.updateSquareBonuses(move);
-    moveStack.push(moveInfo);
     if (resetMoveCount) {
       moveCount = 0;
     } else {
@@ -363,35 +404,60 @@ public class Model {
     changeTurn();
     bitboard.changeTurn();
     bitboard.updateBitboard();
-    bitboard.generateLegalMoves(depth);
-    boardState.put(zobristKey, boardState.getOrDefault(zobristKey, 0) + 1);
+    movesGenerated[moveStackSize] = false;
+    keyHistory[moveStackSize] = zobristKey;
 
     if (isActualMove) {
       notifyObservers();
-      // For some reason clearing the tt after every move massively improves the engine
-      // Have spent a lot of time trying to figure out why, but I haven't so far
-      transpositionTable.clear();
     }
   }
 
   public void undoMove() {
-    MoveInfo moveInfo = moveStack.pop();
-    bitboard.pieceBitboards = moveInfo.pieceBitboards;
-    bitboard.charBoard = moveInfo.charBoard;
+    MoveInfo moveInfo = moveStack[--moveStackSize];
+    int move = moveInfo.move;
+    int origin = Move.getOrigin(move);
+    int destination = Move.getDestination(move);
+    char piece = Move.getPiece(move);
+    char capturedPiece = Move.getCapturedPiece(move);
+    long originBitboard = bitboard.convertIntToBitboard(origin);
+    long destinationBitboard = bitboard.convertIntToBitboard(destination);
+
+    // Take the moved (or promoted) piece off the destination square and put it back on its origin
+    int placedPiece =
+        Move.isPromotion(move) ? Move.getPromotionIndex(move) : Move.getPieceIndex(move);
+    bitboard.pieceBitboards[placedPiece] ^= destinationBitboard;
+    bitboard.pieceBitboards[Move.getPieceIndex(move)] |= originBitboard;
+    bitboard.charBoard[destination] = ' ';
+    bitboard.charBoard[origin] = piece;
+
+    if (Move.isEnPassant(move)) {
+      int capturedSquare = piece == 'P' ? destination + 8 : destination - 8;
+      bitboard.pieceBitboards[Move.getCapturedPieceIndex(move)] |=
+          bitboard.convertIntToBitboard(capturedSquare);
+      bitboard.charBoard[capturedSquare] = capturedPiece;
+    } else if (capturedPiece != ' ') {
+      bitboard.pieceBitboards[Move.getCapturedPieceIndex(move)] |= destinationBitboard;
+      bitboard.charBoard[destination] = capturedPiece;
+    }
+
+    if (Move.isKingSideCastle(move)) {
+      undoCastleRook(piece == 'K' ? 63 : 7, piece == 'K' ? 61 : 5, piece == 'K' ? 'R' : 'r');
+    } else if (Move.isQueenSideCastle(move)) {
+      undoCastleRook(piece == 'K' ? 56 : 0, piece == 'K' ? 59 : 3, piece == 'K' ? 'R' : 'r');
+    }
+
     bitboard.whiteKingSide = moveInfo.WK;
     bitboard.whiteQueenSide = moveInfo.WQ;
     bitboard.blackKingSide = moveInfo.BK;
     bitboard.blackQueenSide = moveInfo.BQ;
     bitboard.setEnPassantSquare(moveInfo.enPassantSquare);
     moveCount = moveInfo.moveCount;
-    currentTurn = moveInfo.currentTurn;
-    bitboard.currentTurn = currentTurn;
+    changeTurn();
+    bitboard.changeTurn();
     bitboard.updateBitboard();
-    bitboard.legalMoves = moveInfo.legalMoves;
     zobristKey = moveInfo.zobristKey;
     bitboard.materialCount = moveInfo.materialCount;
     bitboard.squareBonuses = moveInfo.squareBonuses;
-    boardState = moveInfo.boardState;
     pawnHashKey = moveInfo.pawnHashKey;
     kingPawnProximityHashKey = moveInfo.kingPawnProximityHashKey;
     hasWhiteCastled = moveInfo.hasWhiteCastled;
@@ -400,11 +466,93 @@ public class Model {
     polyKeyEnPassantFile = moveInfo.polyKeyEnPassantFile;
   }
 
-  public void updateHashKeys(Move move, MoveInfo moveInfo) {
-    int origin = move.getOrigin();
-    int destination = move.getDestination();
-    char piece = move.getPiece();
-    char capturedPiece = move.getCapturedPiece();
+  // Passes the turn without moving a piece, for null move pruning. Repetitions are not looked for
+  // across a null move, but the move counter keeps running for the fifty move rule
+  public void makeNullMove() {
+    MoveInfo moveInfo = pushMoveInfo();
+    moveInfo.move = Move.NONE;
+    moveInfo.zobristKey = zobristKey;
+    moveInfo.enPassantSquare = bitboard.getEnPassantSquare();
+    moveInfo.moveCount = moveCount;
+    moveInfo.nullMovePly = nullMovePly;
+    moveInfo.polyKey = polyKey;
+    moveInfo.polyKeyEnPassantFile = polyKeyEnPassantFile;
+
+    if (moveInfo.enPassantSquare != 0) {
+      int position = bitboard.convertBitboardToInt(moveInfo.enPassantSquare);
+      zobristKey ^= Zobrist.enPassant[position % 8];
+      bitboard.setEnPassantSquare(0L);
+    }
+    if (polyKeyEnPassantFile != 0) {
+      polyKey ^= PolyBook.polyKeys[771 + polyKeyEnPassantFile];
+      polyKeyEnPassantFile = 0;
+    }
+    zobristKey ^= Zobrist.turn;
+    polyKey ^= PolyBook.polyKeys[780];
+    nullMovePly = moveStackSize;
+
+    changeTurn();
+    bitboard.changeTurn();
+    bitboard.updateBitboard();
+    movesGenerated[moveStackSize] = false;
+    keyHistory[moveStackSize] = zobristKey;
+  }
+
+  public void undoNullMove() {
+    MoveInfo moveInfo = moveStack[--moveStackSize];
+    bitboard.setEnPassantSquare(moveInfo.enPassantSquare);
+    moveCount = moveInfo.moveCount;
+    nullMovePly = moveInfo.nullMovePly;
+    changeTurn();
+    bitboard.changeTurn();
+    bitboard.updateBitboard();
+    zobristKey = moveInfo.zobristKey;
+    polyKey = moveInfo.polyKey;
+    polyKeyEnPassantFile = moveInfo.polyKeyEnPassantFile;
+  }
+
+  public boolean isLastMoveNull() {
+    return moveStackSize > 0 && moveStack[moveStackSize - 1].move == Move.NONE;
+  }
+
+  // Whether the side to move has anything besides pawns and its king
+  public boolean hasNonPawnMaterial() {
+    int offset = currentTurn ? 0 : 6;
+    return (bitboard.pieceBitboards[offset + 1]
+            | bitboard.pieceBitboards[offset + 2]
+            | bitboard.pieceBitboards[offset + 3]
+            | bitboard.pieceBitboards[offset + 4])
+        != 0L;
+  }
+
+  private MoveInfo pushMoveInfo() {
+    if (moveStackSize == moveStack.length) {
+      moveStack = Arrays.copyOf(moveStack, moveStack.length * 2);
+      keyHistory = Arrays.copyOf(keyHistory, moveStack.length + 1);
+      movesGenerated = Arrays.copyOf(movesGenerated, moveStack.length + 1);
+    }
+    MoveInfo moveInfo = moveStack[moveStackSize];
+    if (moveInfo == null) {
+      moveInfo = new MoveInfo();
+      moveStack[moveStackSize] = moveInfo;
+    }
+    moveStackSize++;
+    return moveInfo;
+  }
+
+  private void undoCastleRook(int rookOrigin, int rookDestination, char rook) {
+    int rookIndex = Bitboard.getPieceIndex(rook);
+    bitboard.pieceBitboards[rookIndex] ^= bitboard.convertIntToBitboard(rookDestination);
+    bitboard.pieceBitboards[rookIndex] |= bitboard.convertIntToBitboard(rookOrigin);
+    bitboard.charBoard[rookDestination] = ' ';
+    bitboard.charBoard[rookOrigin] = rook;
+  }
+
+  public void updateHashKeys(int move, MoveInfo moveInfo) {
+    int origin = Move.getOrigin(move);
+    int destination = Move.getDestination(move);
+    char piece = Move.getPiece(move);
+    char capturedPiece = Move.getCapturedPiece(move);
     int polyKeyOrigin = ((7 - (origin / 8)) * 8 + (origin % 8));
     int polyKeyDestination = ((7 - (destination / 8)) * 8 + (destination % 8));
 
@@ -416,12 +564,12 @@ public class Model {
         kingPawnProximityHashKey ^= Zobrist.board[0][destination];
         polyKey ^= PolyBook.polyKeys[64 * 11 + polyKeyOrigin];
         polyKey ^= PolyBook.polyKeys[64 * 11 + polyKeyDestination];
-        if (move.isKingSideCastle()) {
+        if (Move.isKingSideCastle(move)) {
           zobristKey ^= Zobrist.board[2][63];
           zobristKey ^= Zobrist.board[2][61];
           polyKey ^= PolyBook.polyKeys[64 * 7 + 7];
           polyKey ^= PolyBook.polyKeys[64 * 7 + 5];
-        } else if (move.isQueenSideCastle()) {
+        } else if (Move.isQueenSideCastle(move)) {
           zobristKey ^= Zobrist.board[2][56];
           zobristKey ^= Zobrist.board[2][59];
           polyKey ^= PolyBook.polyKeys[64 * 7];
@@ -457,8 +605,8 @@ public class Model {
         pawnHashKey ^= Zobrist.board[5][origin];
         kingPawnProximityHashKey ^= Zobrist.board[5][origin];
         polyKey ^= PolyBook.polyKeys[64 + polyKeyOrigin];
-        if (move.getPromotion() != ' ') {
-          switch (move.getPromotion()) {
+        if (Move.isPromotion(move)) {
+          switch (Move.getPromotion(move)) {
             case 'Q' -> {
               zobristKey ^= Zobrist.board[1][destination];
               polyKey ^= PolyBook.polyKeys[64 * 9 + polyKeyDestination];
@@ -491,12 +639,12 @@ public class Model {
         polyKey ^= PolyBook.polyKeys[64 * 10 + polyKeyOrigin];
         polyKey ^= PolyBook.polyKeys[64 * 10 + polyKeyDestination];
 
-        if (move.isKingSideCastle()) {
+        if (Move.isKingSideCastle(move)) {
           zobristKey ^= Zobrist.board[8][7];
           zobristKey ^= Zobrist.board[8][5];
           polyKey ^= PolyBook.polyKeys[64 * 6 + 63];
           polyKey ^= PolyBook.polyKeys[64 * 7 + 61];
-        } else if (move.isQueenSideCastle()) {
+        } else if (Move.isQueenSideCastle(move)) {
           zobristKey ^= Zobrist.board[8][0];
           zobristKey ^= Zobrist.board[8][3];
           polyKey ^= PolyBook.polyKeys[64 * 6 + 56];
@@ -532,8 +680,8 @@ public class Model {
         pawnHashKey ^= Zobrist.board[11][origin];
         kingPawnProximityHashKey ^= Zobrist.board[11][origin];
         polyKey ^= PolyBook.polyKeys[polyKeyOrigin];
-        if (move.getPromotion() != ' ') {
-          switch (move.getPromotion()) {
+        if (Move.isPromotion(move)) {
+          switch (Move.getPromotion(move)) {
             case 'q' -> {
               zobristKey ^= Zobrist.board[7][destination];
               polyKey ^= PolyBook.polyKeys[64 * 8 + polyKeyDestination];
@@ -560,7 +708,7 @@ public class Model {
       }
     }
 
-    if (!move.isEnPassant()) {
+    if (!Move.isEnPassant(move)) {
       switch (capturedPiece) {
         case 'K' -> {
           zobristKey ^= Zobrist.board[0][destination];
@@ -674,15 +822,14 @@ public class Model {
   }
 
   public boolean isCheck() {
-    long king = currentTurn ? bitboard.pieceBitboards[0] : bitboard.pieceBitboards[6];
-    return (bitboard.attackMap & king) != 0L;
+    return bitboard.isInCheck();
   }
 
   public boolean isCheckmate() {
     if (!isCheck()) {
       return false;
     }
-    return this.getBitboard().getLegalMoves().isEmpty();
+    return getLegalMoves().isEmpty();
   }
 
   public boolean isDraw() {
@@ -692,11 +839,18 @@ public class Model {
         || isThreeFoldRepetition();
   }
 
+  // Stalemate is left out here, the search finds it when a node has no legal moves
+  public boolean isDraw(int searchRootPly) {
+    return isFiftyMoveDraw()
+        || isInsufficientMaterial()
+        || isRepetition(searchRootPly);
+  }
+
   public boolean isStalemate() {
     if (isCheck()) {
       return false;
     }
-    return this.getBitboard().getLegalMoves().isEmpty();
+    return getLegalMoves().isEmpty();
   }
 
   public boolean isFiftyMoveDraw() {
@@ -719,10 +873,24 @@ public class Model {
   }
 
   public boolean isThreeFoldRepetition() {
-    if (!boardState.containsKey(zobristKey)) {
-      return false;
+    return isRepetition(moveStackSize + 1);
+  }
+
+  public boolean isRepetition(int searchRootPly) {
+    // Only positions since the last capture or pawn move can repeat, and only every other ply has
+    // the same side to move. A single earlier occurrence is enough once it lies inside the search
+    // tree, otherwise the position has to have appeared twice before. Nothing before the last null
+    // move counts, as a position reached by passing is no real repetition.
+    int repetitions = 0;
+    int lastReversiblePly = Math.max(moveStackSize - moveCount, nullMovePly);
+    for (int ply = moveStackSize - 4; ply >= lastReversiblePly; ply -= 2) {
+      if (keyHistory[ply] == zobristKey) {
+        if (ply >= searchRootPly || ++repetitions == 2) {
+          return true;
+        }
+      }
     }
-    return boardState.get(zobristKey) >= 3;
+    return false;
   }
 
   public String getMoveNotation(int origin, int destination) {
@@ -1,6 +1,30 @@
 package ChessEngine.model;
 
+/**
+ * Moves are passed around the engine as packed ints. The static methods of this class encode and
+ * decode that format, while Move objects are only used as a readable adapter for the GUI and the
+ * opening book.
+ *
+ * <p>Layout of an encoded move, from the least significant bit:
+ *
+ * <pre>
+ *   bits  0-5   origin square (charBoard index)
+ *   bits  6-11  destination square (charBoard index)
+ *   bits 12-15  moving piece (pieceBitboards index)
+ *   bits 16-19  captured piece (pieceBitboards index, NO_PIECE if none)
+ *   bits 20-23  promotion piece (pieceBitboards index, NO_PIECE if none)
+ *   bits 24-26  flags (king side castle, queen side castle, en passant)
+ * </pre>
+ */
 public class Move {
+  public static final int NONE = 0;
+  public static final int NO_PIECE = 12;
+  public static final int KING_SIDE_CASTLE = 1 << 24;
+  public static final int QUEEN_SIDE_CASTLE = 1 << 25;
+  public static final int EN_PASSANT = 1 << 26;
+  private static final char[] pieceChars = {
+    'K', 'Q', 'R', 'B', 'N', 'P', 'k', 'q', 'r', 'b', 'n', 'p', ' ', ' ', ' ', ' '
+  };
   private final int origin;
   private final int destination;
   private final char piece;
@@ -37,6 +61,84 @@ public class Move {
     this.promotion = promotion;
   }
 
+  public Move(int move) {
+    this(
+        getOrigin(move),
+        getDestination(move),
+        getPiece(move),
+        getCapturedPiece(move),
+        isKingSideCastle(move),
+        isQueenSideCastle(move),
+        isEnPassant(move),
+        getPromotion(move));
+  }
+
+  public static int encode(int origin, int destination, int piece, int capturedPiece) {
+    return encode(origin, destination, piece, capturedPiece, NO_PIECE, 0);
+  }
+
+  public static int encode(
+      int origin, int destination, int piece, int capturedPiece, int promotion, int flags) {
+    return origin
+        | destination << 6
+        | piece << 12
+        | capturedPiece << 16
+        | promotion << 20
+        | flags;
+  }
+
+  public static int getOrigin(int move) {
+    return move & 0x3F;
+  }
+
+  public static int getDestination(int move) {
+    return (move >>> 6) & 0x3F;
+  }
+
+  public static int getPieceIndex(int move) {
+    return (move >>> 12) & 0xF;
+  }
+
+  public static int getCapturedPieceIndex(int move) {
+    return (move >>> 16) & 0xF;
+  }
+
+  public static int getPromotionIndex(int move) {
+    return (move >>> 20) & 0xF;
+  }
+
+  public static char getPiece(int move) {
+    return pieceChars[getPieceIndex(move)];
+  }
+
+  public static char getCapturedPiece(int move) {
+    return pieceChars[getCapturedPieceIndex(move)];
+  }
+
+  public static char getPromotion(int move) {
+    return pieceChars[getPromotionIndex(move)];
+  }
+
+  public static boolean isCapture(int move) {
+    return getCapturedPieceIndex(move) != NO_PIECE;
+  }
+
+  public static boolean isPromotion(int move) {
+    return getPromotionIndex(move) != NO_PIECE;
+  }
+
+  public static boolean isKingSideCastle(int move) {
+    return (move & KING_SIDE_CASTLE) != 0;
+  }
+
+  public static boolean isQueenSideCastle(int move) {
+    return (move & QUEEN_SIDE_CASTLE) != 0;
+  }
+
+  public static boolean isEnPassant(int move) {
+    return (move & EN_PASSANT) != 0;
+  }
+
   public int getOrigin() {
     return origin;
   }
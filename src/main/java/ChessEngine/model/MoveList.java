@@ -0,0 +1,63 @@
+package ChessEngine.model;
+
+/**
+ * A reusable buffer of encoded moves together with their ordering scores. One list is kept per ply
+ * so move generation never has to allocate while searching.
+ */
+public class MoveList {
+  public static final int MAX_MOVES = 256;
+  public final int[] moves;
+  public final int[] scores;
+  public int size;
+
+  public MoveList() {
+    this.moves = new int[MAX_MOVES];
+    this.scores = new int[MAX_MOVES];
+    this.size = 0;
+  }
+
+  public void add(int move) {
+    moves[size++] = move;
+  }
+
+  public int get(int index) {
+    return moves[index];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  public boolean contains(int move) {
+    for (int i = 0; i < size; i++) {
+      if (moves[i] == move) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Insertion sort by descending score, stable so equally scored moves keep generation order
+  public void sort() {
+    for (int i = 1; i < size; i++) {
+      int move = moves[i];
+      int score = scores[i];
+      int j = i - 1;
+      while (j >= 0 && scores[j] < score) {
+        moves[j + 1] = moves[j];
+        scores[j + 1] = scores[j];
+        j--;
+      }
+      moves[j + 1] = move;
+      scores[j + 1] = score;
+    }
+  }
+}
@@ -3,6 +3,10 @@ module com.example.chessproject {
   requires javafx.fxml;
   requires org.controlsfx.controls;
   requires com.dlsc.formsfx;
+  requires java.management;
+  // Only for the allocation test, which is compiled into this module and needs
+  // com.sun.management.ThreadMXBean
+  requires jdk.management;
 
   opens com.example.chessproject to
       javafx.fxml;
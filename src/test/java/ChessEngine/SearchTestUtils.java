@@ -0,0 +1,18 @@
+package ChessEngine;
+
+import ChessEngine.model.Model;
+import ChessEngine.model.MoveList;
+
+final class SearchTestUtils {
+  private SearchTestUtils() {}
+
+  static boolean isLegal(Model model, int move) {
+    MoveList moves = model.getLegalMoves();
+    for (int i = 0; i < moves.size(); i++) {
+      if (moves.get(i) == move) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
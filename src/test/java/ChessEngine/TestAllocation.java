@@ -0,0 +1,51 @@
+package ChessEngine;
+
+import ChessEngine.AI.Search;
+import ChessEngine.model.Model;
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+
+public class TestAllocation {
+  // Move generation, make and undo should not allocate at all once the per-ply buffers exist,
+  // and neither should the search now that every table it uses is a fixed-size array
+  static final double maxPerftBytesPerNode = 1;
+  static final double maxSearchBytesPerNode = 4;
+  static final String startPosition = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+  private static long allocatedBytes() {
+    com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threadBean.getCurrentThreadAllocatedBytes();
+  }
+
+  @Test
+  public void testPerftAllocation() {
+    Model model = new Model(startPosition);
+    Search bot = new Search(model);
+    bot.fullSearch(3);
+    bot.searchCount = 0;
+
+    long before = allocatedBytes();
+    bot.fullSearch(4);
+    double bytesPerNode = (double) (allocatedBytes() - before) / bot.searchCount;
+    System.out.println("Perft bytes allocated per node: " + bytesPerNode);
+    assert (bytesPerNode <= maxPerftBytesPerNode);
+  }
+
+  @Test
+  public void testSearchAllocation() {
+    Model model = new Model(startPosition);
+    Search bot = new Search(model);
+    for (int i = 0; i < 3; i++) {
+      bot.search(4, 0, -999999999, 999999999);
+      model.transpositionTable.clear();
+    }
+    bot.searchCount = 0;
+
+    long before = allocatedBytes();
+    bot.search(4, 0, -999999999, 999999999);
+    double bytesPerNode = (double) (allocatedBytes() - before) / bot.searchCount;
+    System.out.println("Search bytes allocated per node: " + bytesPerNode);
+    assert (bytesPerNode <= maxSearchBytesPerNode);
+  }
+}
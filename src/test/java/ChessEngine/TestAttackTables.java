@@ -0,0 +1,66 @@
+package ChessEngine;
+
+import ChessEngine.model.AttackTables;
+import ChessEngine.model.Bitboard;
+import org.junit.Test;
+
+public class TestAttackTables {
+  // The shift-based patterns below are the ones Bitboard used before the tables existed
+
+  private static long knightShifts(long knight) {
+    long[] fileMasks = Bitboard.fileMasks;
+    long nne = (knight << 17) & ~(fileMasks[0]);
+    long nee = (knight << 10) & ~(fileMasks[0] | fileMasks[1]);
+    long see = (knight >>> 6) & ~(fileMasks[0] | fileMasks[1]);
+    long sse = (knight >>> 15) & ~(fileMasks[0]);
+    long nnw = (knight << 15) & ~(fileMasks[7]);
+    long nww = (knight << 6) & ~(fileMasks[6] | fileMasks[7]);
+    long sww = (knight >>> 10) & ~(fileMasks[6] | fileMasks[7]);
+    long ssw = (knight >>> 17) & ~(fileMasks[7]);
+    return nne | nee | see | sse | nnw | nww | sww | ssw;
+  }
+
+  private static long kingShifts(long king) {
+    long[] fileMasks = Bitboard.fileMasks;
+    long[] rankMasks = Bitboard.rankMasks;
+    long n = (king & ~rankMasks[7]) << 8;
+    long s = (king & ~rankMasks[0]) >>> 8;
+    long e = (king & ~fileMasks[7]) << 1;
+    long w = (king & ~fileMasks[0]) >>> 1;
+    long ne = (king & ~rankMasks[7] & ~fileMasks[7]) << 9;
+    long se = (king & ~rankMasks[0] & ~fileMasks[7]) >>> 7;
+    long nw = (king & ~rankMasks[7] & ~fileMasks[0]) << 7;
+    long sw = (king & ~rankMasks[0] & ~fileMasks[0]) >>> 9;
+    return n | s | e | w | ne | se | nw | sw;
+  }
+
+  private static long whitePawnShifts(long pawn) {
+    return ((pawn & ~Bitboard.fileMasks[0]) << 7) | ((pawn & ~Bitboard.fileMasks[7]) << 9);
+  }
+
+  private static long blackPawnShifts(long pawn) {
+    return ((pawn & ~Bitboard.fileMasks[7]) >>> 7) | ((pawn & ~Bitboard.fileMasks[0]) >>> 9);
+  }
+
+  @Test
+  public void testKnightAttacks() {
+    for (int square = 0; square < 64; square++) {
+      assert (AttackTables.knightAttacks(square) == knightShifts(1L << square));
+    }
+  }
+
+  @Test
+  public void testKingAttacks() {
+    for (int square = 0; square < 64; square++) {
+      assert (AttackTables.kingAttacks(square) == kingShifts(1L << square));
+    }
+  }
+
+  @Test
+  public void testPawnAttacks() {
+    for (int square = 0; square < 64; square++) {
+      assert (AttackTables.pawnAttacks(true, square) == whitePawnShifts(1L << square));
+      assert (AttackTables.pawnAttacks(false, square) == blackPawnShifts(1L << square));
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package ChessEngine;
+
+import static ChessEngine.SearchTestUtils.isLegal;
+
+import ChessEngine.AI.Search;
+import ChessEngine.AI.TimeManager;
+import ChessEngine.AI.Zobrist;
+import ChessEngine.model.Model;
+import ChessEngine.model.Move;
+import ChessEngine.model.MoveList;
+import java.util.function.Consumer;
+import org.junit.Test;
+
+public class TestSearch {
+  // Zobrist keys are fixed, so the node counts printed for these positions are reproducible and
+  // can be compared between versions of the search
+  static final String[] benchmarkPositions = {
+    "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+    "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+    "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N2N2/PP2BPPP/R2QKB1R w KQ - 0 8",
+    "2r3k1/pp3ppp/4p3/3pP3/3P1P2/P3K3/1P4PP/2R5 b - - 0 25",
+  };
+  static final int benchmarkDepth = 6;
+  static final int mateScore = 1000000;
+  // A pruning margin no evaluation can overcome, which turns that pruning off
+  static final int disabledMargin = 100_000_000;
+
+  @Test
+  public void testBenchmark() {
+    long nodes = benchmarkNodes(bot -> {});
+    long unreducedNodes = benchmarkNodes(bot -> bot.lateMoveReductions = false);
+    long unprunedNodes =
+        benchmarkNodes(
+            bot -> {
+              bot.reverseFutilityMargin = disabledMargin;
+              bot.futilityMargin = disabledMargin;
+              bot.razoringMargin = disabledMargin;
+            });
+    System.out.println(
+        "Benchmark nodes at depth "
+            + benchmarkDepth
+            + ": "
+            + nodes
+            + ", without late move reductions: "
+            + unreducedNodes
+            + ", without futility pruning and razoring: "
+            + unprunedNodes);
+    assert (nodes < unreducedNodes);
+    assert (nodes < unprunedNodes);
+  }
+
+  private static long benchmarkNodes(Consumer<Search> options) {
+    long totalNodes = 0;
+    for (String fen : benchmarkPositions) {
+      Model model = new Model(fen);
+      Search bot = new Search(model);
+      options.accept(bot);
+      int move = bot.iterativeDeepening(benchmarkDepth, new TimeManager(3_600_000, 0));
+      assert (bot.getCompletedDepth() == benchmarkDepth);
+      assert (isLegal(model, move));
+      totalNodes += bot.searchCount;
+    }
+    return totalNodes;
+  }
+
+  @Test
+  public void testFindsMates() {
+    // Mate in one, mate in two and a back rank mate
+    checkMate("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1", 1, 4);
+    checkMate("k7/8/2K5/8/8/8/8/6Q1 w - - 0 1", 3, 5);
+    checkMate("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", 1, 4);
+  }
+
+  @Test
+  public void testNullMove() {
+    Model model = new Model(benchmarkPositions[0]);
+    MoveList moves = model.getLegalMoves();
+    for (int i = 0; i < moves.size(); i++) {
+      // Double push of the e pawn, which leaves an en passant square behind
+      if (Move.getOrigin(moves.get(i)) == 52 && Move.getDestination(moves.get(i)) == 36) {
+        model.movePiece(moves.get(i), false);
+        break;
+      }
+    }
+    long key = model.getZobristKey();
+    long enPassantSquare = model.getBitboard().getEnPassantSquare();
+    assert (enPassantSquare != 0L && !model.getCurrentTurn());
+
+    model.makeNullMove();
+    assert (model.getCurrentTurn() && model.isLastMoveNull());
+    assert (model.getBitboard().getEnPassantSquare() == 0L);
+    assert (model.getZobristKey() == Zobrist.getZobristKey(model.getBitboard()));
+    assert (model.getLegalMoves().size() == 30);
+
+    model.undoNullMove();
+    assert (!model.getCurrentTurn() && !model.isLastMoveNull());
+    assert (model.getBitboard().getEnPassantSquare() == enPassantSquare);
+    assert (model.getZobristKey() == key);
+    assert (model.getLegalMoves().size() == 20);
+  }
+
+  @Test
+  public void testNullMoveRepetition() {
+    // Knights out and back, which repeats the start position every four plies
+    int[][] knightMoves = {{62, 45}, {6, 21}, {45, 62}, {21, 6}};
+    Model model = new Model(benchmarkPositions[0]);
+    long startKey = model.getZobristKey();
+    for (int i = 0; i < 4; i++) {
+      playMove(model, knightMoves[i][0], knightMoves[i][1]);
+    }
+    assert (model.isRepetition(0));
+
+    // White passes twice on the way back, so the start position is only reached again through
+    // null moves and does not count as a repetition
+    model.makeNullMove();
+    playMove(model, 6, 21);
+    model.makeNullMove();
+    playMove(model, 21, 6);
+    assert (model.getZobristKey() == startKey);
+    assert (!model.isRepetition(0));
+
+    // Repetitions after the last null move are still found, and the fifty move counter has kept
+    // running through both null moves
+    for (int i = 0; i < 92; i++) {
+      playMove(model, knightMoves[i % 4][0], knightMoves[i % 4][1]);
+    }
+    assert (model.isRepetition(0));
+    assert (!model.isFiftyMoveDraw());
+    playMove(model, knightMoves[0][0], knightMoves[0][1]);
+    playMove(model, knightMoves[1][0], knightMoves[1][1]);
+    assert (model.isFiftyMoveDraw());
+  }
+
+  private static void playMove(Model model, int origin, int destination) {
+    MoveList moves = model.getLegalMoves();
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      if (Move.getOrigin(move) == origin && Move.getDestination(move) == destination) {
+        model.movePiece(move, false);
+        return;
+      }
+    }
+    assert false;
+  }
+
+  private static void checkMate(String fen, int matePly, int depth) {
+    Model model = new Model(fen);
+    Search bot = new Search(model);
+    int score = bot.search(depth, 0, -999999999, 999999999);
+    assert (score == mateScore - matePly);
+  }
+}
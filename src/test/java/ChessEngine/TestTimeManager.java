@@ -0,0 +1,71 @@
+package ChessEngine;
+
+import static ChessEngine.SearchTestUtils.isLegal;
+
+import ChessEngine.AI.Search;
+import ChessEngine.AI.TimeManager;
+import ChessEngine.model.Model;
+import ChessEngine.model.Move;
+import org.junit.Test;
+
+public class TestTimeManager {
+  static final String middlegamePosition =
+      "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+  // The clock is only read every thousand nodes, and the first iteration always completes
+  static final long allowedOvershootMillis = 250;
+
+  @Test
+  public void testLimits() {
+    TimeManager timeManager = new TimeManager(60_000, 1_000);
+    assert (timeManager.getSoftLimitMillis() > 0);
+    assert (timeManager.getSoftLimitMillis() <= timeManager.getHardLimitMillis());
+    assert (timeManager.getHardLimitMillis() <= 60_000 / 5 + 1_000);
+
+    TimeManager shortClock = new TimeManager(100, 0);
+    assert (shortClock.getHardLimitMillis() < 100);
+  }
+
+  @Test
+  public void testSearchStopsAtDepthLimit() {
+    Model model = new Model(middlegamePosition);
+    Search bot = new Search(model);
+    int move = bot.iterativeDeepening(3, new TimeManager(3_600_000, 0));
+    assert (bot.getCompletedDepth() == 3);
+    assert (isLegal(model, move));
+  }
+
+  @Test
+  public void testSearchRespectsHardLimit() {
+    // Warm up on a separate model, so the timed search starts from empty tables
+    new Search(new Model(middlegamePosition)).iterativeDeepening(2, new TimeManager(3_600_000, 0));
+
+    // Never stopping between iterations leaves the hard limit as the only way to end the search
+    TimeManager timeManager =
+        new TimeManager(2_000, 0) {
+          @Override
+          public boolean shouldStop(int bestMove) {
+            return false;
+          }
+        };
+    Model model = new Model(middlegamePosition);
+    Search bot = new Search(model);
+    long start = System.nanoTime();
+    int move = bot.iterativeDeepening(32, timeManager);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    int completedDepth = bot.getCompletedDepth();
+    System.out.println("Searched to depth " + completedDepth + " in " + elapsedMillis + " ms");
+    assert (completedDepth > 0 && completedDepth < 32);
+    assert (elapsedMillis >= timeManager.getHardLimitMillis());
+    assert (elapsedMillis <= timeManager.getHardLimitMillis() + allowedOvershootMillis);
+
+    // The aborted iteration must not change the move: the search is deterministic, so a fresh
+    // search stopping at the last completed depth finds the move that iteration returned
+    Model completedModel = new Model(middlegamePosition);
+    Search completedBot = new Search(completedModel);
+    int completedMove =
+        completedBot.iterativeDeepening(completedDepth, new TimeManager(3_600_000, 0));
+    assert (completedBot.getCompletedDepth() == completedDepth);
+    assert (move != Move.NONE && isLegal(model, move));
+    assert (move == completedMove);
+  }
+}
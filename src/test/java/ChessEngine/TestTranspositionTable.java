@@ -0,0 +1,210 @@
+package ChessEngine;
+
+import ChessEngine.AI.HeapTranspositionTable;
+import ChessEngine.AI.OffHeapTranspositionTable;
+import ChessEngine.AI.TranspositionTable;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class TestTranspositionTable {
+  // Keys are confined to a few buckets so that every bucket is under constant contention
+  static final int threads = 8;
+  static final int operationsPerThread = 2_000_000;
+  static final int keyPoolSize = 64;
+  static final int contendedBuckets = 4;
+  // Both backends are timed on the same sequence of probes and stores. Sharing one JVM makes the
+  // table calls polymorphic, so the numbers are a little worse than with a single backend loaded
+  static final int latencySizeMb = 64;
+  static final int latencyOperations = 4_000_000;
+  static final int latencyRounds = 5;
+  // Off-heap access goes through a buffer rather than an array, and clearing copies from a zeroed
+  // array rather than filling, but neither should cost much more than on the heap
+  static final double maxLatencyRatio = 2;
+
+  // Every field of a stored entry is derived from its key, so any mismatch is a corrupted read
+  private static int expectedDepth(long key) {
+    return (int) (key & 0x3F);
+  }
+
+  private static int expectedScore(long key) {
+    return (int) ((key >>> 8) & 0xFFFFF) - 0x80000;
+  }
+
+  private static int expectedFlag(long key) {
+    return 1 + (int) ((key >>> 32) & 0xFFFF) % 3;
+  }
+
+  private static int expectedMove(long key) {
+    return (int) (key >>> 37) & 0x7FFFFFF;
+  }
+
+  @Test
+  public void testHeapStoreAndProbe() {
+    checkStoreAndProbe(new HeapTranspositionTable(1));
+  }
+
+  @Test
+  public void testOffHeapStoreAndProbe() {
+    checkStoreAndProbe(new OffHeapTranspositionTable(1));
+  }
+
+  @Test
+  public void testShallowResultsKeepDeeperEntries() {
+    TranspositionTable table = new HeapTranspositionTable(1);
+    long key = 0x9E3779B97F4A7C15L;
+    table.storePosition(key, 5, 40, TranspositionTable.EXACT, 0x5ABCDEF);
+
+    // A quiescence bound for the same position neither replaces the entry nor loses its move
+    table.storePosition(key, 0, 90, TranspositionTable.LOWER_BOUND, 0);
+    long entry = table.getPosition(key);
+    assert (TranspositionTable.getDepth(entry) == 5 && TranspositionTable.getScore(entry) == 40);
+    assert (TranspositionTable.getBestMove(entry) == 0x5ABCDEF);
+
+    // An exact score replaces it, but keeps the move when it has none of its own
+    table.storePosition(key, 0, 35, TranspositionTable.EXACT, 0);
+    entry = table.getPosition(key);
+    assert (TranspositionTable.getDepth(entry) == 0 && TranspositionTable.getScore(entry) == 35);
+    assert (TranspositionTable.getBestMove(entry) == 0x5ABCDEF);
+  }
+
+  @Test
+  public void testHeapConcurrentAccess() throws InterruptedException {
+    checkConcurrentAccess(new HeapTranspositionTable(1));
+  }
+
+  @Test
+  public void testOffHeapConcurrentAccess() throws InterruptedException {
+    checkConcurrentAccess(new OffHeapTranspositionTable(1));
+  }
+
+  @Test
+  public void testBackendLatency() {
+    TranspositionTable heap = new HeapTranspositionTable(latencySizeMb);
+    TranspositionTable offHeap = new OffHeapTranspositionTable(latencySizeMb);
+    assert (heap.getSizeMb() == latencySizeMb && offHeap.getSizeMb() == latencySizeMb);
+
+    double heapNanos = Double.MAX_VALUE;
+    double offHeapNanos = Double.MAX_VALUE;
+    long heapClearNanos = Long.MAX_VALUE;
+    long offHeapClearNanos = Long.MAX_VALUE;
+    for (int round = 0; round < latencyRounds; round++) {
+      long start = System.nanoTime();
+      heap.clear();
+      heapClearNanos = Math.min(heapClearNanos, System.nanoTime() - start);
+      start = System.nanoTime();
+      offHeap.clear();
+      offHeapClearNanos = Math.min(offHeapClearNanos, System.nanoTime() - start);
+      start = System.nanoTime();
+      long heapChecksum = probeAndStore(heap);
+      heapNanos = Math.min(heapNanos, (double) (System.nanoTime() - start) / latencyOperations);
+      start = System.nanoTime();
+      long offHeapChecksum = probeAndStore(offHeap);
+      offHeapNanos =
+          Math.min(offHeapNanos, (double) (System.nanoTime() - start) / latencyOperations);
+      assert (heapChecksum == offHeapChecksum);
+    }
+
+    System.out.printf(
+        "Probe and store latency: heap %.1f ns, off-heap %.1f ns%n", heapNanos, offHeapNanos);
+    System.out.printf(
+        "Clear time: heap %.2f ms, off-heap %.2f ms%n",
+        heapClearNanos / 1e6, offHeapClearNanos / 1e6);
+    assert (offHeapNanos <= heapNanos * maxLatencyRatio);
+    assert (offHeapClearNanos <= heapClearNanos * maxLatencyRatio);
+  }
+
+  // Probes a random key and stores it on a miss, like the search does, returning the hits seen
+  private static long probeAndStore(TranspositionTable table) {
+    SplittableRandom random = new SplittableRandom(7);
+    long checksum = 0;
+    for (int i = 0; i < latencyOperations; i++) {
+      long key = random.nextLong() & 0xFFFFFFFFFFFL;
+      long entry = table.getPosition(key);
+      if (entry == TranspositionTable.NONE) {
+        table.storePosition(
+            key, expectedDepth(key), expectedScore(key), expectedFlag(key), expectedMove(key));
+      } else {
+        checksum += entry;
+      }
+    }
+    return checksum;
+  }
+
+  private static void checkStoreAndProbe(TranspositionTable table) {
+    long key = 0x9E3779B97F4A7C15L;
+    assert (table.getPosition(key) == TranspositionTable.NONE);
+
+    table.storePosition(key, 7, -123456, TranspositionTable.LOWER_BOUND, 0x5ABCDEF);
+    long entry = table.getPosition(key);
+    assert (TranspositionTable.getDepth(entry) == 7);
+    assert (TranspositionTable.getScore(entry) == -123456);
+    assert (TranspositionTable.getFlag(entry) == TranspositionTable.LOWER_BOUND);
+    assert (TranspositionTable.getBestMove(entry) == 0x5ABCDEF);
+    assert (table.getPosition(key ^ 1L << 40) == TranspositionTable.NONE);
+
+    table.storePosition(key, 8, 0, TranspositionTable.EXACT, 0x5ABCDEF);
+    assert (table.getProbes() == 3 && table.getHits() == 1 && table.getCollisions() == 1);
+    assert (table.getStores() == 2 && table.getEmptyWrites() == 1 && table.getUpdates() == 1);
+    table.resetStatistics();
+    assert (table.getProbes() == 0 && table.getStores() == 0);
+
+    table.clear();
+    assert (table.getPosition(key) == TranspositionTable.NONE);
+  }
+
+  private static void checkConcurrentAccess(TranspositionTable table)
+      throws InterruptedException {
+    long[] keys = new long[keyPoolSize];
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < keyPoolSize; i++) {
+      keys[i] = (random.nextLong() & ~0xFFFFFL) | random.nextInt(contendedBuckets);
+    }
+
+    AtomicLong hits = new AtomicLong();
+    AtomicLong corrupted = new AtomicLong();
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      SplittableRandom workerRandom = random.split();
+      workers[t] =
+          new Thread(
+              () -> {
+                long workerHits = 0;
+                long workerCorrupted = 0;
+                for (int i = 0; i < operationsPerThread; i++) {
+                  long key = keys[workerRandom.nextInt(keyPoolSize)];
+                  if (workerRandom.nextBoolean()) {
+                    table.storePosition(
+                        key,
+                        expectedDepth(key),
+                        expectedScore(key),
+                        expectedFlag(key),
+                        expectedMove(key));
+                    continue;
+                  }
+                  long entry = table.getPosition(key);
+                  if (entry == TranspositionTable.NONE) {
+                    continue;
+                  }
+                  workerHits++;
+                  if (TranspositionTable.getDepth(entry) != expectedDepth(key)
+                      || TranspositionTable.getScore(entry) != expectedScore(key)
+                      || TranspositionTable.getFlag(entry) != expectedFlag(key)
+                      || TranspositionTable.getBestMove(entry) != expectedMove(key)) {
+                    workerCorrupted++;
+                  }
+                }
+                hits.addAndGet(workerHits);
+                corrupted.addAndGet(workerCorrupted);
+              });
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    System.out.println("Concurrent probes hit: " + hits.get() + ", corrupted: " + corrupted.get());
+    assert (hits.get() > 0);
+    assert (corrupted.get() == 0);
+  }
+}